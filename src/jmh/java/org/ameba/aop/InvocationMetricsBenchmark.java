@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.aop;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A InvocationMetricsBenchmark measures the overhead the layer aspects add to each intercepted call by timing it and
+ * recording the duration with a bound {@link InvocationMetrics.Recorder}.
+ *
+ * @author Heiko Scherrer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class InvocationMetricsBenchmark {
+
+    private InvocationMetrics.Recorder micrometer;
+    private InvocationMetrics.Recorder histogram;
+
+    @Setup
+    public void setup() throws Exception {
+        var method = InvocationMetricsBenchmark.class.getMethod("setup");
+        micrometer = new MicrometerInvocationMetrics(new SimpleMeterRegistry()).bind(InvocationMetrics.SERVICE, getClass(), method);
+        histogram = new HistogramInvocationMetrics().bind(InvocationMetrics.SERVICE, getClass(), method);
+    }
+
+    @Benchmark
+    public long nanoTime() {
+        var start = System.nanoTime();
+        return System.nanoTime() - start;
+    }
+
+    @Benchmark
+    public void micrometer() {
+        var start = System.nanoTime();
+        micrometer.record(System.nanoTime() - start, false);
+    }
+
+    @Benchmark
+    public void histogram() {
+        var start = System.nanoTime();
+        histogram.record(System.nanoTime() - start, false);
+    }
+}
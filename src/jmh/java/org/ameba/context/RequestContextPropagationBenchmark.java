@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.context;
+
+import org.ameba.http.RequestIDHolder;
+import org.ameba.http.ctx.CallContext;
+import org.ameba.http.identity.IdentityContextHolder;
+import org.ameba.tenancy.TenantHolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A RequestContextPropagationBenchmark measures the cost to spawn virtual threads that read the tenant of the
+ * {@link RequestContext}, with the {@code inheritable} and the {@code scoped} propagation. Each propagation runs in its own
+ * fork, because it is set with a system property. Run with {@code -prof gc} to compare the memory allocated per thread.
+ *
+ * @author Heiko Scherrer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RequestContextPropagationBenchmark {
+
+    private static final int THREADS = 100;
+    private final Thread[] threads = new Thread[THREADS];
+
+    @Setup
+    public void setup() {
+        TenantHolder.setCurrentTenant("benchmark-tenant");
+        IdentityContextHolder.setCurrentIdentity("benchmark-user");
+        RequestIDHolder.setRequestID("4bf92f3577b34da6a3ce929d0e0e4736");
+        RequestContext.update(ctx -> ctx.withCallContext(new CallContext("benchmark-service")));
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + RequestContext.PROPAGATION_PROPERTY + "=inheritable")
+    @OperationsPerInvocation(THREADS)
+    public void inheritable(Blackhole bh) throws InterruptedException {
+        for (int i = 0; i < THREADS; i++) {
+            threads[i] = Thread.ofVirtual().start(() -> bh.consume(TenantHolder.getCurrentTenant()));
+        }
+        join();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + RequestContext.PROPAGATION_PROPERTY + "=scoped")
+    @OperationsPerInvocation(THREADS)
+    public void scoped(Blackhole bh) throws InterruptedException {
+        var captured = RequestContext.current();
+        for (int i = 0; i < THREADS; i++) {
+            threads[i] = Thread.ofVirtual().start(() -> RequestContext.runWith(captured, () -> bh.consume(TenantHolder.getCurrentTenant())));
+        }
+        join();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + RequestContext.PROPAGATION_PROPERTY + "=scoped")
+    @OperationsPerInvocation(THREADS)
+    public void scopedWithoutContext(Blackhole bh) throws InterruptedException {
+        for (int i = 0; i < THREADS; i++) {
+            threads[i] = Thread.ofVirtual().start(() -> bh.consume(TenantHolder.getCurrentTenant()));
+        }
+        join();
+    }
+
+    private void join() throws InterruptedException {
+        for (var thread : threads) {
+            thread.join();
+        }
+    }
+}
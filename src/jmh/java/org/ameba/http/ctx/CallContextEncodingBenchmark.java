@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.http.ctx;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A CallContextEncodingBenchmark compares encoding and decoding of the {@link CallContext} with a new {@link ObjectMapper} per
+ * call, as done before, against the shared reader and writer of the {@link CallContextHolder}. Run with {@code -prof gc} to
+ * compare the allocation per call.
+ *
+ * @author Heiko Scherrer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallContextEncodingBenchmark {
+
+    private CallContext callContext;
+    private String encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        callContext = new CallContext("benchmark-service");
+        callContext.setTraceId("4bf92f3577b34da6a3ce929d0e0e4736");
+        var details = new HashMap<String, Serializable>();
+        details.put("transportUnit", "00000000000000004711");
+        details.put("location", "EXT_/0000/0000/0000/0000");
+        callContext.setDetails(details);
+        CallContextHolder.setCallContext(() -> null, callContext);
+        encoded = CallContextCodec.encode(callContext);
+    }
+
+    @TearDown
+    public void tearDown() {
+        CallContextHolder.destroy();
+    }
+
+    @Benchmark
+    public String encodeWithNewObjectMapper() throws IOException {
+        return Base64.getEncoder().encodeToString(new ObjectMapper().writeValueAsBytes(callContext));
+    }
+
+    @Benchmark
+    public String encodeShared() {
+        return CallContextHolder.getEncodedCallContext().orElseThrow();
+    }
+
+    @Benchmark
+    public CallContext decodeWithNewObjectMapper() throws IOException {
+        return new ObjectMapper().readValue(Base64.getDecoder().decode(encoded), CallContext.class);
+    }
+
+    @Benchmark
+    public CallContext decodeShared() throws IOException {
+        return CallContextCodec.decode(encoded);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.http.ctx;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A CallContextWireFormatBenchmark measures the throughput of encoding and decoding a {@link CallContext} in each
+ * {@link CallContextEncoding} with a growing number of details. The size of the encoded header is printed in the setup of
+ * each trial.
+ *
+ * @author Heiko Scherrer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallContextWireFormatBenchmark {
+
+    @Param({"JSON", "BINARY"})
+    private CallContextEncoding encoding;
+
+    @Param({"0", "5", "50"})
+    private int details;
+
+    private CallContext callContext;
+    private String encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        callContext = new CallContext("benchmark-service");
+        callContext.setTraceId("4bf92f3577b34da6a3ce929d0e0e4736");
+        for (int i = 0; i < details; i++) {
+            callContext.getDetails().put("detail" + i, "EXT_/0000/0000/0000/" + i);
+        }
+        encoded = CallContextCodec.encode(callContext, encoding);
+        System.out.printf("%n%s with [%d] details: [%d] characters%n", encoding, details, encoded.length());
+    }
+
+    @Benchmark
+    public String encode() throws IOException {
+        return CallContextCodec.encode(callContext, encoding);
+    }
+
+    @Benchmark
+    public CallContext decode() throws IOException {
+        return CallContextCodec.decode(encoded);
+    }
+}
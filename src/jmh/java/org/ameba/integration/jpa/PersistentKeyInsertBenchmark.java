@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.integration.jpa;
+
+import org.ameba.IDGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A PersistentKeyInsertBenchmark measures the bulk insert throughput into a table with a unique {@code C_PID} column, like
+ * the one of an {@link ApplicationEntity}, for each {@link PersistentKeyStrategy}. The table is stored in a file based H2
+ * database below {@code target/jmh-h2} and grows over the trial. The number of rows and the disk space used by the table
+ * and its indexes are printed at the end of each trial.
+ *
+ * @author Heiko Scherrer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PersistentKeyInsertBenchmark {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    @Param({"RANDOM_UUID", "UUID_V7", "ULID"})
+    private PersistentKeyStrategy strategy;
+
+    private IDGenerator<String> generator;
+    private Connection connection;
+    private PreparedStatement insert;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        generator = strategy.createGenerator();
+        connection = DriverManager.getConnection("jdbc:h2:file:./target/jmh-h2/" + strategy.name().toLowerCase(), "sa", "");
+        try (var statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS T_ENTITY");
+            statement.execute("CREATE TABLE T_ENTITY (C_PK BIGINT AUTO_INCREMENT PRIMARY KEY, C_PID VARCHAR(36) NOT NULL, "
+                    + "C_NAME VARCHAR(64), CONSTRAINT UC_ENTITY_PID UNIQUE (C_PID))");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement("INSERT INTO T_ENTITY (C_PID, C_NAME) VALUES (?, ?)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (var statement = connection.createStatement();
+             var result = statement.executeQuery("SELECT COUNT(*), DISK_SPACE_USED('T_ENTITY') FROM T_ENTITY")) {
+            result.next();
+            System.out.printf("%n%s: [%d] rows, [%d] bytes used by table and indexes%n", strategy, result.getLong(1), result.getLong(2));
+        }
+        insert.close();
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setString(1, generator.generate());
+            insert.setString(2, "entity");
+            insert.addBatch();
+        }
+        var result = insert.executeBatch();
+        connection.commit();
+        return result;
+    }
+}
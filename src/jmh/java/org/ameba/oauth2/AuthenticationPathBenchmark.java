@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkProvider;
+import io.jsonwebtoken.Jwts;
+import org.ameba.oauth2.issuer.ConfigurationIssuerWhiteList;
+import org.ameba.oauth2.parser.HS512TokenParser;
+import org.ameba.oauth2.parser.JwksKeyCache;
+import org.ameba.oauth2.parser.RSA256TokenParser;
+import org.ameba.oauth2.tenant.TenantEO;
+import org.ameba.oauth2.tenant.TenantRepository;
+import org.ameba.oauth2.tenant.TenantValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.ameba.Constants.HEADER_VALUE_X_TENANT;
+
+/**
+ * An AuthenticationPathBenchmark measures the complete per-request authentication path: {@link JwtValidationStrategy} with a
+ * {@link BearerTokenExtractor}, signature verification by the {@link RSA256TokenParser} or {@link HS512TokenParser} and the
+ * {@link TenantValidator}. The JWKS endpoint and the tenant repository are replaced by in-memory stand-ins.
+ * <p>
+ * Throughput and the sampled latency distribution (incl. p99) are reported per mode, run with {@code -prof gc} (the default of
+ * the {@code jmh} profile) to get the allocation rate.
+ *
+ * @author Heiko Scherrer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationPathBenchmark {
+
+    private static final String ISSUER = "http://localhost/auth/realms/benchmark";
+    private static final String KID = "benchmark-kid";
+    private static final String TENANT_HASH = "4711";
+    private static final String TENANT_NAME = "benchmark-tenant";
+
+    @Param({"RS256", "HS512"})
+    public String alg;
+    @Param({"false", "true"})
+    public boolean verifiedTokenCache;
+
+    private JwksKeyCache keyCache;
+    private JwtValidationStrategy strategy;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var hmacKey = Jwts.SIG.HS512.key().build();
+        var rsaKeys = Jwts.SIG.RS256.keyPair().build();
+        var rsaPublicKey = (RSAPublicKey) rsaKeys.getPublic();
+        var encoder = Base64.getUrlEncoder().withoutPadding();
+        var jwk = Jwk.fromValues(Map.of(
+                "kid", KID,
+                "kty", "RSA",
+                "alg", "RS256",
+                "use", "sig",
+                "n", encoder.encodeToString(unsigned(rsaPublicKey.getModulus())),
+                "e", encoder.encodeToString(unsigned(rsaPublicKey.getPublicExponent()))
+        ));
+        JwkProvider jwkProvider = kid -> jwk;
+
+        var builder = Jwts.builder()
+                .issuer(ISSUER)
+                .subject("benchmark")
+                .audience().add(TENANT_NAME).and()
+                .expiration(Date.from(Instant.now().plus(Duration.ofDays(1))));
+        var token = "RS256".equals(alg)
+                ? builder.header().keyId(KID).and().signWith(rsaKeys.getPrivate()).compact()
+                : builder.signWith(hmacKey).compact();
+
+        var whiteList = new ConfigurationIssuerWhiteList(ISSUER, 60, "http://localhost/auth",
+                Base64.getEncoder().encodeToString(hmacKey.getEncoded()), null, KID);
+        keyCache = new JwksKeyCache(jwkProvider);
+        List<TokenParser> parsers = List.of(new RSA256TokenParser(keyCache), new HS512TokenParser());
+        var extractor = verifiedTokenCache
+                ? new BearerTokenExtractor(whiteList, parsers, new VerifiedTokenCache())
+                : new BearerTokenExtractor(whiteList, parsers);
+        strategy = new JwtValidationStrategy(List.of(extractor), new TenantValidator(inMemoryTenantRepository()));
+
+        request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        request.addHeader(HEADER_VALUE_X_TENANT, TENANT_HASH);
+        response = new MockHttpServletResponse();
+
+        strategy.doFilter(request, response);
+        if (!TENANT_NAME.equals(request.getAttribute(HEADER_VALUE_X_TENANT))) {
+            throw new IllegalStateException("Authentication path is not set up properly");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        keyCache.close();
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        var bytes = value.toByteArray();
+        return bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+
+    private static TenantRepository inMemoryTenantRepository() {
+        var tenant = new TenantEO(TENANT_HASH);
+        tenant.setName(TENANT_NAME);
+        tenant.setRealm("benchmark");
+        return (TenantRepository) Proxy.newProxyInstance(TenantRepository.class.getClassLoader(), new Class[]{TenantRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAll" -> List.of(tenant);
+                    case "findByHash" -> TENANT_HASH.equals(args[0]) ? Optional.of(tenant) : Optional.empty();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryTenantRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Benchmark
+    public MockHttpServletRequest authenticate() {
+        strategy.doFilter(request, response);
+        return request;
+    }
+}
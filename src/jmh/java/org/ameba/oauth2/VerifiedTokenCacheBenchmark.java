@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import io.jsonwebtoken.Jwts;
+import org.ameba.oauth2.issuer.ConfigurationIssuerWhiteList;
+import org.ameba.oauth2.parser.HS512TokenParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A VerifiedTokenCacheBenchmark compares the extraction of a HS512 signed JWT with a {@link VerifiedTokenCache} hit against
+ * a cache miss and against an extractor without cache.
+ *
+ * @author Heiko Scherrer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VerifiedTokenCacheBenchmark {
+
+    private static final String ISSUER = "http://localhost/auth/realms/benchmark";
+    private String token;
+    private DefaultTokenExtractor uncached;
+    private DefaultTokenExtractor hit;
+    private DefaultTokenExtractor miss;
+
+    @Setup
+    public void setup() {
+        var key = Jwts.SIG.HS512.key().build();
+        token = Jwts.builder()
+                .issuer(ISSUER)
+                .subject("benchmark")
+                .expiration(Date.from(Instant.now().plus(Duration.ofDays(1))))
+                .signWith(key)
+                .compact();
+        var whiteList = new ConfigurationIssuerWhiteList(ISSUER, 60, "http://localhost/auth", Base64.getEncoder().encodeToString(key.getEncoded()), null, null);
+        List<TokenParser> parsers = List.of(new HS512TokenParser());
+        uncached = new DefaultTokenExtractor(whiteList, parsers);
+        hit = new DefaultTokenExtractor(whiteList, parsers, new VerifiedTokenCache());
+        // A safety margin beyond the token expiration prevents the token from being cached at all
+        miss = new DefaultTokenExtractor(whiteList, parsers, new VerifiedTokenCache(Duration.ofMinutes(5), 1000, Duration.ofDays(2)));
+        if (!hit.extract(token).hasJwt()) {
+            throw new IllegalStateException("Token cannot be extracted");
+        }
+    }
+
+    @Benchmark
+    public ExtractionResult uncached() {
+        return uncached.extract(token);
+    }
+
+    @Benchmark
+    public ExtractionResult cacheHit() {
+        return hit.extract(token);
+    }
+
+    @Benchmark
+    public ExtractionResult cacheMiss() {
+        return miss.extract(token);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A NodeCounterIDGenerator generates String ids in UUID format from a random node id, that is chosen once per instance, and a
+ * counter, that starts at a random value and is incremented for each id. Generating an id costs one atomic increment and does
+ * not involve any random number generator.
+ * <p>
+ * Ids of one instance are unique as long as the counter does not wrap around. The ids are predictable and must not be used
+ * where this matters.
+ *
+ * @author Heiko Scherrer
+ */
+public class NodeCounterIDGenerator implements IDGenerator<String> {
+
+    private final long nodeId;
+    private final AtomicLong counter;
+
+    public NodeCounterIDGenerator() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Create a generator with a given {@code nodeId}, e.g. when unique node ids are assigned by the environment.
+     *
+     * @param nodeId The id of this node
+     */
+    public NodeCounterIDGenerator(long nodeId) {
+        this.nodeId = nodeId;
+        this.counter = new AtomicLong(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String generate() {
+        return new UUID(nodeId, counter.getAndIncrement()).toString();
+    }
+}
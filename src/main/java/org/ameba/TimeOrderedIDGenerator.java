@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A TimeOrderedIDGenerator generates String ids in the format of a time-ordered version 7 UUID (RFC 9562): 48 bits of the Unix
+ * timestamp in milliseconds followed by 74 random bits. The random bits are taken from {@link ThreadLocalRandom}, that is not
+ * shared between threads, instead of a {@link java.security.SecureRandom}, so the ids are not meant to be unguessable.
+ * <p>
+ * Ids generated later sort after those generated earlier, what keeps inserts into an index on the id close together.
+ *
+ * @author Heiko Scherrer
+ */
+public class TimeOrderedIDGenerator implements IDGenerator<String> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String generate() {
+        return next().toString();
+    }
+
+    /**
+     * Generate a version 7 UUID.
+     *
+     * @return The UUID
+     */
+    public UUID next() {
+        var random = ThreadLocalRandom.current();
+        var msb = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+        var lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
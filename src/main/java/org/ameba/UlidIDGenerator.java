@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A UlidIDGenerator generates String ids in the ULID format: 26 characters in Crockford's Base32, encoding 48 bits of the Unix
+ * timestamp in milliseconds followed by 80 random bits from {@link ThreadLocalRandom}. The ids sort lexicographically in the
+ * order they have been generated, with a random order within the same millisecond, and are shorter than UUIDs.
+ *
+ * @author Heiko Scherrer
+ */
+public class UlidIDGenerator implements IDGenerator<String> {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LENGTH = 26;
+    private static final int TIME_LENGTH = 10;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String generate() {
+        var random = ThreadLocalRandom.current();
+        var chars = new char[LENGTH];
+        var time = System.currentTimeMillis();
+        for (int i = TIME_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (time & 31)];
+            time >>>= 5;
+        }
+        // 80 random bits, the upper 16 in high and the lower 64 in low
+        var high = random.nextInt() & 0xFFFFL;
+        var low = random.nextLong();
+        for (int i = LENGTH - 1; i >= TIME_LENGTH; i--) {
+            chars[i] = ALPHABET[(int) (low & 31)];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+        return new String(chars);
+    }
+}
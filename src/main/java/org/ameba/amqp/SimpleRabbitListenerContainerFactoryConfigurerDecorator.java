@@ -15,6 +15,9 @@
  */
 package org.ameba.amqp;
 
+import org.aopalliance.aop.Advice;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.ameba.context.RequestContext;
 import org.springframework.amqp.core.MessagePostProcessor;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
@@ -22,11 +25,14 @@ import org.springframework.boot.autoconfigure.amqp.AbstractRabbitListenerContain
 import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
 import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.List;
 
 /**
  * A SimpleRabbitListenerContainerFactoryConfigurerDecorator takes the {@link SimpleRabbitListenerContainerFactoryConfigurer} from
  * SpringBoot and decorates it with additional functionality. This decorator only works with an override of the {@code SimpleRabbitListenerContainerFactory}.
+ * With the {@link RequestContext.Propagation#SCOPED} propagation, each message is received within its own {@link RequestContext} scope.
+ * The propagation is checked per message, so that it does not matter whether it is set before or after the factory is configured.
  *
  * @author Heiko Scherrer
  */
@@ -54,5 +60,29 @@ public class SimpleRabbitListenerContainerFactoryConfigurerDecorator
             );
         }
         simpleRabbitListenerContainerFactoryConfigurer.configure(factory, connectionFactory);
+        var adviceChain = factory.getAdviceChain();
+        var advices = new Advice[adviceChain == null ? 1 : adviceChain.length + 1];
+        advices[0] = requestContextScope();
+        if (adviceChain != null) {
+            System.arraycopy(adviceChain, 0, advices, 1, adviceChain.length);
+        }
+        factory.setAdviceChain(advices);
+    }
+
+    private static MethodInterceptor requestContextScope() {
+        return invocation -> {
+            if (RequestContext.getPropagation() != RequestContext.Propagation.SCOPED) {
+                return invocation.proceed();
+            }
+            return RequestContext.callWith(RequestContext.empty(), () -> {
+                try {
+                    return invocation.proceed();
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new UndeclaredThrowableException(t);
+                }
+            });
+        };
     }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.aop;
+
+import org.ameba.context.RequestContext;
+import org.slf4j.MDC;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An AccessLogSampler decides which intercepted calls are written to the access log of an aspect. Calls that take longer than
+ * an optional slow-call threshold are always logged, whatever the sampling strategy decides. Metrics are not affected and
+ * still record all calls.
+ *
+ * @author Heiko Scherrer
+ */
+public final class AccessLogSampler {
+
+    /** The MDC key of the trace ID, as used by Micrometer Tracing. */
+    public static final String TRACE_ID = "traceId";
+
+    /**
+     * The strategy to sample calls.
+     */
+    public enum Strategy {
+        /** Log all calls. */
+        ALL,
+        /** Log no call, except slow calls. */
+        NONE,
+        /** Log every Nth call. */
+        EVERY_NTH,
+        /** Log calls with a probability. */
+        PROBABILISTIC,
+        /** Log all calls of a trace with a probability, so that a trace is either logged completely or not at all. */
+        TRACE
+    }
+
+    private final Strategy strategy;
+    private final int everyNth;
+    private final double probability;
+    private final long slowCallThresholdNanos;
+    private final AtomicLong calls = new AtomicLong();
+
+    private AccessLogSampler(Strategy strategy, int everyNth, double probability, long slowCallThresholdNanos) {
+        if (everyNth < 1) {
+            throw new IllegalArgumentException("everyNth must be at least 1");
+        }
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("probability must be between 0 and 1");
+        }
+        this.strategy = strategy;
+        this.everyNth = everyNth;
+        this.probability = probability;
+        this.slowCallThresholdNanos = slowCallThresholdNanos;
+    }
+
+    /**
+     * Create a sampler.
+     *
+     * @param strategy The sampling strategy
+     * @param everyNth Log every Nth call, only considered with {@link Strategy#EVERY_NTH}
+     * @param probability The probability between {@literal 0} and {@literal 1}, only considered with
+     * {@link Strategy#PROBABILISTIC} and {@link Strategy#TRACE}
+     * @param slowCallThreshold Calls taking longer are always logged, {@literal null} to not log calls because they are slow
+     * @return The sampler
+     */
+    public static AccessLogSampler of(Strategy strategy, int everyNth, double probability, Duration slowCallThreshold) {
+        return new AccessLogSampler(strategy, everyNth, probability, slowCallThreshold == null ? Long.MAX_VALUE : slowCallThreshold.toNanos());
+    }
+
+    /**
+     * Create a sampler that logs all calls.
+     *
+     * @return The sampler
+     */
+    public static AccessLogSampler all() {
+        return of(Strategy.ALL, 1, 1, null);
+    }
+
+    /**
+     * Check whether the call that is about to start shall be logged.
+     *
+     * @return {@literal true} if so
+     */
+    public boolean sample() {
+        return switch (strategy) {
+            case ALL -> true;
+            case NONE -> false;
+            case EVERY_NTH -> calls.getAndIncrement() % everyNth == 0;
+            case PROBABILISTIC -> ThreadLocalRandom.current().nextDouble() < probability;
+            case TRACE -> sampleTrace();
+        };
+    }
+
+    private boolean sampleTrace() {
+        var traceId = MDC.get(TRACE_ID);
+        if (traceId == null) {
+            traceId = RequestContext.current().getRequestId();
+        }
+        if (traceId == null) {
+            return ThreadLocalRandom.current().nextDouble() < probability;
+        }
+        // Spread the hash, trace IDs often differ in a few characters only
+        var hash = traceId.hashCode() * 0x9E3779B97F4A7C15L;
+        return (hash >>> 11) * 0x1.0p-53 < probability;
+    }
+
+    /**
+     * Check whether a call was slow and must be logged even if not sampled.
+     *
+     * @param durationNanos The execution time in nanoseconds
+     * @return {@literal true} if so
+     */
+    public boolean isSlow(long durationNanos) {
+        return durationNanos > slowCallThresholdNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "AccessLogSampler[strategy=" + strategy + ", everyNth=" + everyNth + ", probability=" + probability
+                + ", slowCallThreshold=" + (slowCallThresholdNanos == Long.MAX_VALUE ? "none" : Duration.ofNanos(slowCallThresholdNanos)) + "]";
+    }
+}
@@ -15,11 +15,19 @@
  */
 package org.ameba.aop;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.ameba.annotation.ExcludeFromScan;
+import org.ameba.tenancy.TenantTags;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.core.env.Environment;
 
 /**
  * A AspectsConfiguration is a Spring configuration class that declares all Ameba aspect beans.
@@ -31,26 +39,56 @@ import org.springframework.context.annotation.EnableAspectJAutoProxy;
 @EnableAspectJAutoProxy
 public class AspectsConfiguration {
 
+    /** Prefix of the properties to configure the sampling of access logs. */
+    public static final String SAMPLING_PREFIX = "ameba.aop.access-log.sampling.";
     /** Set by the selector. */
     public static boolean withRootCause = false;
 
     @Bean(ServiceLayerAspect.COMPONENT_NAME)
-    public ServiceLayerAspect serviceLayerAspect(@Autowired(required = false) ExceptionTranslator exceptionTranslator) {
-        return new ServiceLayerAspect(withRootCause, exceptionTranslator);
+    public ServiceLayerAspect serviceLayerAspect(@Autowired(required = false) ExceptionTranslator exceptionTranslator,
+            @Autowired(required = false) InvocationMetrics invocationMetrics, Environment environment) {
+        return new ServiceLayerAspect(withRootCause, exceptionTranslator, invocationMetrics, accessLogSampler(environment));
     }
 
     @Bean(MeasuredAspect.COMPONENT_NAME)
-    public MeasuredAspect measuredAspect() {
-        return new MeasuredAspect();
+    public MeasuredAspect measuredAspect(@Autowired(required = false) InvocationMetrics invocationMetrics) {
+        return new MeasuredAspect(invocationMetrics);
     }
 
     @Bean(IntegrationLayerAspect.COMPONENT_NAME)
-    public IntegrationLayerAspect integrationLayerAspect() {
-        return new IntegrationLayerAspect(withRootCause);
+    public IntegrationLayerAspect integrationLayerAspect(@Autowired(required = false) InvocationMetrics invocationMetrics, Environment environment) {
+        return new IntegrationLayerAspect(withRootCause, invocationMetrics, accessLogSampler(environment));
+    }
+
+    /**
+     * Create a sampler for the access log of one aspect from the {@value #SAMPLING_PREFIX}* properties.
+     *
+     * @param environment The environment to read the properties from
+     * @return A new sampler
+     */
+    static AccessLogSampler accessLogSampler(Environment environment) {
+        var threshold = environment.getProperty(SAMPLING_PREFIX + "slow-call-threshold");
+        return AccessLogSampler.of(
+                environment.getProperty(SAMPLING_PREFIX + "strategy", AccessLogSampler.Strategy.class, AccessLogSampler.Strategy.ALL),
+                environment.getProperty(SAMPLING_PREFIX + "every-nth", Integer.class, 100),
+                environment.getProperty(SAMPLING_PREFIX + "probability", Double.class, 0.01),
+                threshold == null || threshold.isBlank() ? null : DurationStyle.detectAndParse(threshold)
+        );
     }
 
     @Bean(PresentationLayerAspect.COMPONENT_NAME)
     public PresentationLayerAspect presentationLayerAspect() {
         return new PresentationLayerAspect();
     }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    public static class AspectsMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(InvocationMetrics.class)
+        InvocationMetrics invocationMetrics(ObjectProvider<MeterRegistry> registry, ObjectProvider<TenantTags> tenantTags) {
+            return new MicrometerInvocationMetrics(() -> registry.getIfAvailable(() -> Metrics.globalRegistry), tenantTags.getIfAvailable());
+        }
+    }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.aop;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A HistogramInvocationMetrics records invocations into a {@link LatencyHistogram} per method and outcome, without any
+ * dependency to a metrics library. The histograms are named by layer, simple class name, method name and outcome, e.g.
+ * {@literal service:OrderService#create:success}, and are meant to be {@link LatencyHistogram#sample() sampled} periodically,
+ * e.g. to be written to a log or exported to a monitoring system.
+ *
+ * @author Heiko Scherrer
+ */
+public class HistogramInvocationMetrics implements InvocationMetrics {
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Recorder bind(String layer, Class<?> type, Method method) {
+        var name = layer + ":" + type.getSimpleName() + "#" + method.getName();
+        var success = histograms.computeIfAbsent(name + ":success", k -> new LatencyHistogram());
+        var error = histograms.computeIfAbsent(name + ":error", k -> new LatencyHistogram());
+        return (durationNanos, failed) -> (failed ? error : success).record(durationNanos);
+    }
+
+    /**
+     * Return all histograms by name.
+     *
+     * @return An unmodifiable view on the histograms
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+}
@@ -16,25 +16,22 @@
 package org.ameba.aop;
 
 import org.ameba.LoggingCategories;
-import org.ameba.annotation.NotLogged;
-import org.ameba.annotation.NotTransformed;
 import org.ameba.exception.BusinessRuntimeException;
 import org.ameba.exception.IntegrationLayerException;
 import org.ameba.exception.ResourceExistsException;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.annotation.Order;
 import org.springframework.dao.DuplicateKeyException;
-import org.springframework.util.StopWatch;
 
 import java.util.Optional;
 
 /**
  * An IntegrationLayerAspect is used to measure time consumption of method calls around the integration layer. The order of the aspect is {@literal 10}.
+ * If an {@link InvocationMetrics} is given, each execution time is recorded there, independent of the log level.
  *
  * @author Heiko Scherrer
  */
@@ -48,6 +45,8 @@ public class IntegrationLayerAspect {
     private static final Logger EXC_LOGGER = LoggerFactory.getLogger(LoggingCategories.INTEGRATION_LAYER_EXCEPTION);
     private static final Logger BOOT_LOGGER = LoggerFactory.getLogger(LoggingCategories.BOOT);
     private boolean withRootCause = false;
+    private MethodMetadata.Cache methods = new MethodMetadata.Cache(InvocationMetrics.INTEGRATION, null);
+    private AccessLogSampler sampler = AccessLogSampler.all();
 
     /** Default constructor with some loginfo */
     public IntegrationLayerAspect() {
@@ -64,11 +63,35 @@ public class IntegrationLayerAspect {
         this.withRootCause = withRootCause;
     }
 
+    /**
+     * Constructor with some loginfo, considering the root cause and metrics.
+     *
+     * @param withRootCause Whether the root cause shall be preserved or not
+     * @param metrics Where execution times are recorded, may be {@literal null}
+     */
+    public IntegrationLayerAspect(boolean withRootCause, InvocationMetrics metrics) {
+        this(withRootCause);
+        this.methods = new MethodMetadata.Cache(InvocationMetrics.INTEGRATION, metrics);
+    }
+
+    /**
+     * Constructor with some loginfo, considering the root cause, metrics and access log sampling.
+     *
+     * @param withRootCause Whether the root cause shall be preserved or not
+     * @param metrics Where execution times are recorded, may be {@literal null}
+     * @param sampler Decides which calls are written to the access log
+     */
+    public IntegrationLayerAspect(boolean withRootCause, InvocationMetrics metrics, AccessLogSampler sampler) {
+        this(withRootCause, metrics);
+        this.sampler = sampler;
+    }
+
     /**
      * Logging and exception translation happens for intercepted methods.
      *
      * <ul>
-     *     <li>Set log level of {@link LoggingCategories#INTEGRATION_LAYER_ACCESS} to INFO to enable method tracing.</li>
+     *     <li>Set log level of {@link LoggingCategories#INTEGRATION_LAYER_ACCESS} to INFO to enable method tracing of the calls chosen
+     *     by the {@link AccessLogSampler}.</li>
      *     <li>Set log level of {@link LoggingCategories#INTEGRATION_LAYER_EXCEPTION} to ERROR to enable exception logging.</li>
      * </ul>
      *
@@ -78,25 +101,30 @@ public class IntegrationLayerAspect {
      */
     @Around("org.ameba.aop.Pointcuts.integrationPointcut()")
     public Object measure(ProceedingJoinPoint pjp) throws Throwable {
-        StopWatch sw = null;
-        if (P_LOGGER.isInfoEnabled()) {
-            sw = new StopWatch();
-            sw.start();
-            P_LOGGER.info("[I]>> {}#{}", pjp.getTarget().getClass().getSimpleName(), pjp.getSignature().getName());
+        var metadata = methods.get(pjp);
+        var logAccess = P_LOGGER.isInfoEnabled();
+        var logged = logAccess && sampler.sample();
+        if (logged) {
+            P_LOGGER.info("[I]>> {}", metadata.displayName);
         }
+        var start = System.nanoTime();
+        var failed = true;
         try {
-            return pjp.proceed();
+            var result = pjp.proceed();
+            failed = false;
+            return result;
         } catch (Exception ex) {
-            var method = ((MethodSignature) pjp.getSignature()).getMethod();
-            var notTransformed = method.getAnnotation(NotTransformed.class);
-            if (notTransformed == null) {
+            if (!metadata.notTransformed) {
                 throw translateException(ex);
             }
             throw ex;
         } finally {
-            if (P_LOGGER.isInfoEnabled() && sw != null) {
-                sw.stop();
-                P_LOGGER.info("[I]<< {}#{} took [{}] (ms)", pjp.getTarget().getClass().getSimpleName(), pjp.getSignature().getName(), sw.getTotalTimeMillis());
+            var duration = System.nanoTime() - start;
+            if (metadata.recorder != null) {
+                metadata.recorder.record(duration, failed);
+            }
+            if (logged || logAccess && sampler.isSlow(duration)) {
+                P_LOGGER.info("[I]<< {} took [{}] (ms)", metadata.displayName, MethodMetadata.toMillis(duration));
             }
         }
     }
@@ -110,7 +138,7 @@ public class IntegrationLayerAspect {
      * @return Returns the exception to be thrown
      */
     public Exception translateException(Exception ex) {
-        if (EXC_LOGGER.isErrorEnabled() && ex.getClass().getAnnotation(NotLogged.class) != null) {
+        if (EXC_LOGGER.isErrorEnabled() && MethodMetadata.isNotLogged(ex)) {
             EXC_LOGGER.error(ex.getLocalizedMessage(), ex);
         }
 
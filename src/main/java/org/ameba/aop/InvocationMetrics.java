@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.aop;
+
+import java.lang.reflect.Method;
+
+/**
+ * An InvocationMetrics records the execution time of methods intercepted by the Ameba aspects, so that they can be aggregated
+ * instead of being written to the log one by one.
+ * <p>
+ * The aspects {@link #bind(String, Class, Method) bind} a {@link Recorder} once per intercepted method and record each
+ * invocation with it, so implementations should resolve their meters when binding and not per invocation.
+ *
+ * @author Heiko Scherrer
+ * @see MicrometerInvocationMetrics
+ */
+public interface InvocationMetrics {
+
+    /** Layer of methods annotated with {@link org.ameba.annotation.Measured Measured}. */
+    String MEASURED = "measured";
+    /** Layer of business services. */
+    String SERVICE = "service";
+    /** Layer of repositories. */
+    String INTEGRATION = "integration";
+
+    /**
+     * Records the invocations of one method.
+     */
+    @FunctionalInterface
+    interface Recorder {
+
+        /**
+         * Record one invocation.
+         *
+         * @param durationNanos The execution time in nanoseconds
+         * @param failed Whether the method has thrown
+         */
+        void record(long durationNanos, boolean failed);
+    }
+
+    /**
+     * Create a recorder for the invocations of one method.
+     *
+     * @param layer The layer of the intercepted method
+     * @param type The class of the target object
+     * @param method The intercepted method
+     * @return The recorder
+     */
+    Recorder bind(String layer, Class<?> type, Method method);
+
+    /**
+     * Record one invocation.
+     *
+     * @param layer The layer of the intercepted method
+     * @param type The class of the target object
+     * @param method The intercepted method
+     * @param durationNanos The execution time in nanoseconds
+     * @param failed Whether the method has thrown
+     */
+    default void record(String layer, Class<?> type, Method method, long durationNanos, boolean failed) {
+        bind(layer, type, method).record(durationNanos, failed);
+    }
+}
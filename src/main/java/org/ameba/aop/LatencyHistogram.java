@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.aop;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A LatencyHistogram records latencies in nanoseconds into log-linear buckets, like an HdrHistogram with a precision of two
+ * significant digits. Values below {@literal 128} ns are counted exactly, larger values fall into buckets with a relative
+ * width of less than {@literal 1.6%}, up to {@link #MAX_VALUE}. Larger values are counted in the last bucket.
+ * <p>
+ * Recording is lock-free and does not allocate. The histogram is read by {@link #sample() sampling} it, which returns the
+ * values recorded since the previous sample and resets it, like the interval histograms of an HdrHistogram {@code Recorder}.
+ * Values recorded concurrently to sampling are counted in either interval, none is lost.
+ *
+ * @author Heiko Scherrer
+ */
+public final class LatencyHistogram {
+
+    /** The largest value that is distinguished, one minute in nanoseconds. */
+    public static final long MAX_VALUE = 60_000_000_000L;
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int HALF_COUNT = 1 << (SUB_BUCKET_BITS - 1);
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+
+    static int indexOf(long value) {
+        if (value < 2 * HALF_COUNT) {
+            return (int) Math.max(value, 0);
+        }
+        if (value > MAX_VALUE) {
+            return BUCKETS - 1;
+        }
+        var shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return HALF_COUNT * shift + (int) (value >>> shift);
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < 2 * HALF_COUNT) {
+            return index;
+        }
+        var shift = index / HALF_COUNT - 1;
+        return (long) (index - HALF_COUNT * shift) << shift;
+    }
+
+    static long highestValueAt(int index) {
+        return lowestValueAt(index + 1) - 1;
+    }
+
+    /**
+     * Record one latency.
+     *
+     * @param nanos The latency in nanoseconds
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(indexOf(nanos));
+        total.add(nanos);
+    }
+
+    /**
+     * Return the values recorded since the previous sample and reset the histogram.
+     *
+     * @return The sample
+     */
+    public Snapshot sample() {
+        var sampled = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts.get(i) != 0) {
+                sampled[i] = counts.getAndSet(i, 0);
+            }
+        }
+        return new Snapshot(sampled, total.sumThenReset());
+    }
+
+    /**
+     * A Snapshot holds the values of one sampling interval.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+
+        Snapshot(long[] counts, long totalNanos) {
+            this.counts = counts;
+            var sum = 0L;
+            for (var c : counts) {
+                sum += c;
+            }
+            this.count = sum;
+            this.totalNanos = totalNanos;
+        }
+
+        /**
+         * Return the number of recorded values.
+         *
+         * @return The count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Return the sum of all recorded values.
+         *
+         * @return The sum in nanoseconds
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * Return the arithmetic mean of all recorded values.
+         *
+         * @return The mean in nanoseconds or {@literal 0} if nothing is recorded
+         */
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * Return the largest recorded value within the precision of the histogram.
+         *
+         * @return The maximum in nanoseconds or {@literal 0} if nothing is recorded
+         */
+        public long getMaxNanos() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    return highestValueAt(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Return the value below or equal to which the given {@code percentile} of all recorded values fall, within the
+         * precision of the histogram.
+         *
+         * @param percentile The percentile between {@literal 0} and {@literal 100}
+         * @return The value in nanoseconds or {@literal 0} if nothing is recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            var rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+            var seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValueAt(i);
+                }
+            }
+            return highestValueAt(counts.length - 1);
+        }
+    }
+}
@@ -22,11 +22,11 @@ import org.aspectj.lang.annotation.Aspect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.annotation.Order;
-import org.springframework.util.StopWatch;
 
 /**
  * An MeasuredAspect is used to measure execution time of methods in any application layer annotated with {@link org.ameba.annotation.Measured Measured}.
- * The order of the aspect is {@literal 18}.
+ * The order of the aspect is {@literal 18}. If an {@link InvocationMetrics} is given, each execution time is recorded there,
+ * independent of the log level.
  *
  * @author Heiko Scherrer
  */
@@ -38,6 +38,7 @@ public class MeasuredAspect {
     public static final String COMPONENT_NAME = "MeasuredAspect";
     private static final Logger MEASURED_LOGGER = LoggerFactory.getLogger(LoggingCategories.LOG_MEASURED);
     private static final Logger BOOT_LOGGER = LoggerFactory.getLogger(LoggingCategories.BOOT);
+    private MethodMetadata.Cache methods = new MethodMetadata.Cache(InvocationMetrics.MEASURED, null);
 
     /** Default constructor with some loginfo */
     public MeasuredAspect() {
@@ -45,8 +46,18 @@ public class MeasuredAspect {
     }
 
     /**
-     * The execution time is measured of {@link org.ameba.annotation.Measured Measured} annotated,  Around intercepted methods when the log
-     * level of category `MEASURED` is set to `INFO`.
+     * Constructor with some loginfo and metrics.
+     *
+     * @param metrics Where execution times are recorded, may be {@literal null}
+     */
+    public MeasuredAspect(InvocationMetrics metrics) {
+        this();
+        this.methods = new MethodMetadata.Cache(InvocationMetrics.MEASURED, metrics);
+    }
+
+    /**
+     * The execution time is measured of {@link org.ameba.annotation.Measured Measured} annotated,  Around intercepted methods. It is
+     * logged when the log level of category `MEASURED` is set to `INFO`.
      *
      * @param pjp The joinpoint
      * @return Method return value
@@ -54,18 +65,24 @@ public class MeasuredAspect {
      */
     @Around("org.ameba.aop.Pointcuts.isMeasured()")
     public Object measure(ProceedingJoinPoint pjp) throws Throwable {
-        StopWatch sw = null;
-        if (MEASURED_LOGGER.isInfoEnabled()) {
-            sw = new StopWatch();
-            sw.start();
-            MEASURED_LOGGER.info("[TSL]>> {}#{}", pjp.getTarget().getClass().getSimpleName(), pjp.getSignature().getName());
+        var metadata = methods.get(pjp);
+        var logged = MEASURED_LOGGER.isInfoEnabled();
+        if (logged) {
+            MEASURED_LOGGER.info("[TSL]>> {}", metadata.displayName);
         }
+        var start = System.nanoTime();
+        var failed = true;
         try {
-            return pjp.proceed();
+            var result = pjp.proceed();
+            failed = false;
+            return result;
         } finally {
-            if (MEASURED_LOGGER.isInfoEnabled() && sw != null) {
-                sw.stop();
-                MEASURED_LOGGER.info("[TSL]<< {}#{} took {} [ms]", pjp.getTarget().getClass().getSimpleName(), pjp.getSignature().getName(), sw.getTotalTimeMillis());
+            var duration = System.nanoTime() - start;
+            if (metadata.recorder != null) {
+                metadata.recorder.record(duration, failed);
+            }
+            if (logged) {
+                MEASURED_LOGGER.info("[TSL]<< {} took {} [ms]", metadata.displayName, MethodMetadata.toMillis(duration));
             }
         }
     }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.aop;
+
+import org.ameba.annotation.NotLogged;
+import org.ameba.annotation.NotTransformed;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A MethodMetadata holds everything the aspects need to know about an intercepted method, resolved once with the first
+ * invocation: the names used in log lines, whether exceptions are translated and the bound {@link InvocationMetrics.Recorder}.
+ *
+ * @author Heiko Scherrer
+ */
+final class MethodMetadata {
+
+    private static final ClassValue<Boolean> NOT_LOGGED = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.getAnnotation(NotLogged.class) != null;
+        }
+    };
+
+    /** The simple name of the target class and the method name, separated by {@literal #}. */
+    final String displayName;
+    /** The short String representation of the joinpoint. */
+    final String shortString;
+    /** Whether the method is annotated with {@link NotTransformed}. */
+    final boolean notTransformed;
+    /** The recorder of the method or {@literal null} if no metrics are recorded. */
+    final InvocationMetrics.Recorder recorder;
+
+    private MethodMetadata(ProceedingJoinPoint pjp, Class<?> type, Method method, String layer, InvocationMetrics metrics) {
+        this.displayName = type.getSimpleName() + "#" + method.getName();
+        this.shortString = pjp.toShortString();
+        this.notTransformed = method.getAnnotation(NotTransformed.class) != null;
+        this.recorder = metrics == null ? null : metrics.bind(layer, type, method);
+    }
+
+    /**
+     * Convert a duration to milliseconds with microsecond precision, to be logged.
+     *
+     * @param nanos The duration in nanoseconds
+     * @return The duration in milliseconds
+     */
+    static double toMillis(long nanos) {
+        return (nanos / 1_000) / 1_000.0;
+    }
+
+    /**
+     * Check whether the exception type is annotated with {@link NotLogged}.
+     *
+     * @param ex The exception
+     * @return {@literal true} if so
+     */
+    static boolean isNotLogged(Throwable ex) {
+        return NOT_LOGGED.get(ex.getClass());
+    }
+
+    /**
+     * Check whether the exception or any of its causes is annotated with {@link NotLogged}.
+     *
+     * @param ex The exception
+     * @return {@literal true} if so
+     */
+    static boolean hasNotLogged(Throwable ex) {
+        for (var t = ex; t != null; t = t.getCause()) {
+            if (isNotLogged(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A Cache keeps the metadata of all methods intercepted by one aspect, by target class and method.
+     */
+    static final class Cache {
+
+        private final String layer;
+        private final InvocationMetrics metrics;
+        private final ClassValue<ConcurrentMap<Method, MethodMetadata>> byType = new ClassValue<>() {
+            @Override
+            protected ConcurrentMap<Method, MethodMetadata> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
+        /**
+         * Create a cache.
+         *
+         * @param layer The layer of the aspect
+         * @param metrics Where execution times are recorded, may be {@literal null}
+         */
+        Cache(String layer, InvocationMetrics metrics) {
+            this.layer = layer;
+            this.metrics = metrics;
+        }
+
+        /**
+         * Return the metadata of the intercepted method.
+         *
+         * @param pjp The joinpoint
+         * @return The metadata
+         */
+        MethodMetadata get(ProceedingJoinPoint pjp) {
+            var targetType = pjp.getTarget().getClass();
+            var method = ((MethodSignature) pjp.getSignature()).getMethod();
+            var methods = byType.get(targetType);
+            var result = methods.get(method);
+            if (result == null) {
+                result = methods.computeIfAbsent(method, m -> new MethodMetadata(pjp, ClassUtils.getUserClass(targetType), m, layer, metrics));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.aop;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.ameba.tenancy.TenantMeterRemover;
+import org.ameba.tenancy.TenantTags;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A MicrometerInvocationMetrics records invocations into Micrometer {@link Timer}s with a percentile histogram, one per layer
+ * named {@value #PREFIX} followed by the layer. The timers are tagged with the simple class name, the method name, the current
+ * tenant, bounded by a {@link TenantTags} or {@value #NO_TENANT} without one, and the outcome ({@literal success} or {@literal error}). The histogram starts at
+ * {@literal 10} microseconds to show the distribution of calls that take less than a millisecond.
+ * <p>
+ * A bound {@link Recorder} keeps the timers of its method per tenant, so recording an invocation does not build a meter ID.
+ * When tenants drop out of the top N, their timers are removed from the registry and from the recorders.
+ *
+ * @author Heiko Scherrer
+ */
+public class MicrometerInvocationMetrics implements InvocationMetrics {
+
+    /** Prefix of all timer names. */
+    public static final String PREFIX = "ameba.aop.";
+    /** Tag value used when no tenant is set. */
+    public static final String NO_TENANT = TenantTags.NONE;
+    /** The lowest bucket of the percentile histogram, Micrometer starts at one millisecond by default. */
+    public static final Duration MINIMUM_EXPECTED_VALUE = Duration.ofNanos(10_000);
+
+    private final Supplier<MeterRegistry> registrySupplier;
+    private final TenantTags tenantTags;
+    /** The recorders bound so far, weakly referenced because {@link InvocationMetrics#record(String, Class, Method, long, boolean)} binds one per invocation. */
+    private final Set<TimerRecorder> recorders = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private volatile MeterRegistry registry;
+
+    public MicrometerInvocationMetrics(MeterRegistry registry) {
+        this(() -> registry);
+    }
+
+    /**
+     * Create an instance that resolves the registry with the first invocation, because aspects are usually created before the
+     * registry.
+     *
+     * @param registrySupplier Supplies the registry to record into
+     */
+    public MicrometerInvocationMetrics(Supplier<MeterRegistry> registrySupplier) {
+        this(registrySupplier, new TenantTags());
+    }
+
+    /**
+     * Create an instance that resolves the registry with the first invocation.
+     *
+     * @param registrySupplier Supplies the registry to record into
+     * @param tenantTags Resolves the tenant tag with a bounded cardinality, or {@literal null} to tag all invocations with
+     * {@value #NO_TENANT}
+     */
+    public MicrometerInvocationMetrics(Supplier<MeterRegistry> registrySupplier, TenantTags tenantTags) {
+        this.registrySupplier = registrySupplier;
+        this.tenantTags = tenantTags;
+        if (tenantTags == null) {
+            return;
+        }
+        var remover = new TenantMeterRemover(() -> registry, tenantTags, name -> name.startsWith(PREFIX));
+        tenantTags.addRankListener(() -> {
+            remover.run();
+            // Evict after removing from the registry, so that a timer registered in between is not kept detached
+            recorders.forEach(TimerRecorder::evict);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Recorder bind(String layer, Class<?> type, Method method) {
+        var recorder = new TimerRecorder(layer, type.getSimpleName(), method.getName());
+        if (tenantTags != null) {
+            recorders.add(recorder);
+        }
+        return recorder;
+    }
+
+    private MeterRegistry getRegistry() {
+        var result = registry;
+        if (result == null) {
+            result = registry = registrySupplier.get();
+        }
+        return result;
+    }
+
+    private final class TimerRecorder implements Recorder {
+
+        private final String layer;
+        private final String type;
+        private final String method;
+        private final ConcurrentMap<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+        TimerRecorder(String layer, String type, String method) {
+            this.layer = layer;
+            this.type = type;
+            this.method = method;
+        }
+
+        @Override
+        public void record(long durationNanos, boolean failed) {
+            var tenant = tenantTags == null ? NO_TENANT : tenantTags.currentTenant();
+            var byOutcome = timers.get(tenant);
+            if (byOutcome == null) {
+                byOutcome = timers.computeIfAbsent(tenant, t -> new Timer[]{timer(t, "success"), timer(t, "error")});
+            }
+            byOutcome[failed ? 1 : 0].record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Drop the removed timers of tenants that are not in the top N anymore.
+         */
+        void evict() {
+            timers.keySet().removeIf(t -> !tenantTags.isTagValue(t));
+        }
+
+        private Timer timer(String tenant, String outcome) {
+            return Timer.builder(PREFIX + layer)
+                    .description("The execution time of methods in the " + layer + " layer")
+                    .tag("class", type)
+                    .tag("method", method)
+                    .tag("tenant", tenant)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MINIMUM_EXPECTED_VALUE)
+                    .register(getRegistry());
+        }
+    }
+}
@@ -16,14 +16,11 @@
 package org.ameba.aop;
 
 import org.ameba.LoggingCategories;
-import org.ameba.annotation.NotLogged;
-import org.ameba.annotation.NotTransformed;
 import org.ameba.exception.BusinessRuntimeException;
 import org.ameba.exception.ServiceLayerException;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -35,7 +32,8 @@ import java.util.stream.Stream;
 
 /**
  * A ServiceLayerAspect is spawned around the business service layer and is responsible to log method execution time and occurring
- * exceptions. The order of the aspect is {@literal 15}.
+ * exceptions. The order of the aspect is {@literal 15}. If an {@link InvocationMetrics} is given, each execution time is recorded
+ * there, independent of the log level.
  *
  * @author Heiko Scherrer
  */
@@ -50,6 +48,8 @@ public class ServiceLayerAspect {
     private static final Logger BOOT_LOGGER = LoggerFactory.getLogger(LoggingCategories.BOOT);
     private boolean withRootCause = false;
     private ExceptionTranslator exceptionTranslator;
+    private MethodMetadata.Cache methods = new MethodMetadata.Cache(InvocationMetrics.SERVICE, null);
+    private AccessLogSampler sampler = AccessLogSampler.all();
 
     /** Default constructor with some loginfo. */
     public ServiceLayerAspect() {
@@ -68,10 +68,36 @@ public class ServiceLayerAspect {
         this.exceptionTranslator = exceptionTranslator;
     }
 
+    /**
+     * Constructor with some loginfo, considering the root cause and metrics.
+     *
+     * @param withRootCause Whether the root cause shall be preserved
+     * @param exceptionTranslator An instance used to translate exceptions
+     * @param metrics Where execution times are recorded, may be {@literal null}
+     */
+    public ServiceLayerAspect(boolean withRootCause, ExceptionTranslator exceptionTranslator, InvocationMetrics metrics) {
+        this(withRootCause, exceptionTranslator);
+        this.methods = new MethodMetadata.Cache(InvocationMetrics.SERVICE, metrics);
+    }
+
+    /**
+     * Constructor with some loginfo, considering the root cause, metrics and access log sampling.
+     *
+     * @param withRootCause Whether the root cause shall be preserved
+     * @param exceptionTranslator An instance used to translate exceptions
+     * @param metrics Where execution times are recorded, may be {@literal null}
+     * @param sampler Decides which calls are written to the access log
+     */
+    public ServiceLayerAspect(boolean withRootCause, ExceptionTranslator exceptionTranslator, InvocationMetrics metrics, AccessLogSampler sampler) {
+        this(withRootCause, exceptionTranslator, metrics);
+        this.sampler = sampler;
+    }
+
     /**
      * Logging and exception translation happens for intercepted methods.
      * <ul>
-     *     <li>Set log level of {@link LoggingCategories#SERVICE_LAYER_ACCESS} to INFO to enable method tracing.</li>
+     *     <li>Set log level of {@link LoggingCategories#SERVICE_LAYER_ACCESS} to INFO to enable method tracing of the calls chosen by
+     *     the {@link AccessLogSampler}.</li>
      *     <li>Set log level of {@link LoggingCategories#SERVICE_LAYER_EXCEPTION} to ERROR to enable exception logging.</li>
      * </ul>
      *
@@ -81,44 +107,40 @@ public class ServiceLayerAspect {
      */
     @Around("org.ameba.aop.Pointcuts.servicePointcut()")
     public Object around(ProceedingJoinPoint pjp) throws Throwable {
-        long startMillis = 0L;
-        if (SRV_LOGGER.isInfoEnabled()) {
-            SRV_LOGGER.info("[S]>> Method call: {}", pjp.toShortString());
-            startMillis = System.currentTimeMillis();
+        var metadata = methods.get(pjp);
+        var logAccess = SRV_LOGGER.isInfoEnabled();
+        var logged = logAccess && sampler.sample();
+        if (logged) {
+            SRV_LOGGER.info("[S]>> Method call: {}", metadata.shortString);
         }
+        var start = System.nanoTime();
+        var failed = true;
 
         Object obj;
         try {
             obj = pjp.proceed();
+            failed = false;
         } catch (Exception ex) {
-            var method = ((MethodSignature) pjp.getSignature()).getMethod();
-            var notTransformed = method.getAnnotation(NotTransformed.class);
-            if (notTransformed == null) {
+            if (!metadata.notTransformed) {
                 Exception e = translateException(ex);
-                if (EXC_LOGGER.isErrorEnabled() && !hasNotLogged(ex)) {
+                if (EXC_LOGGER.isErrorEnabled() && !MethodMetadata.hasNotLogged(ex)) {
                     EXC_LOGGER.error(e.getLocalizedMessage(), e);
                 }
                 throw e;
             }
             throw ex;
         } finally {
-            if (SRV_LOGGER.isInfoEnabled()) {
-                SRV_LOGGER.info("[S]<< {} took [{}] (ms)", pjp.toShortString(), (System.currentTimeMillis() - startMillis));
+            var duration = System.nanoTime() - start;
+            if (metadata.recorder != null) {
+                metadata.recorder.record(duration, failed);
+            }
+            if (logged || logAccess && sampler.isSlow(duration)) {
+                SRV_LOGGER.info("[S]<< {} took [{}] (ms)", metadata.shortString, MethodMetadata.toMillis(duration));
             }
         }
         return obj;
     }
 
-    private boolean hasNotLogged(Throwable ex) {
-        if (ex.getClass().getAnnotation(NotLogged.class) != null) {
-            return true;
-        }
-        if (ex.getCause() != null) {
-            return hasNotLogged(ex.getCause());
-        }
-        return false;
-    }
-
     /**
      * Called after an exception is thrown by classes of the service layer. <p> Set log level to ERROR to log the root cause. </p>
      *
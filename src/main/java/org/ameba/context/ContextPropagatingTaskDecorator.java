@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.context;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * A ContextPropagatingTaskDecorator runs tasks of Spring's task executors, like those of {@code @Async} methods, with the
+ * context of the submitting thread.
+ *
+ * @author Heiko Scherrer
+ * @see ContextPropagation
+ */
+public class ContextPropagatingTaskDecorator implements TaskDecorator {
+
+    /**
+     * {@inheritDoc}
+     *
+     * Capture the context of the submitting thread.
+     */
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return ContextPropagation.wrap(runnable);
+    }
+}
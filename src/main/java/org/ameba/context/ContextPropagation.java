@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.context;
+
+import org.slf4j.MDC;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * A ContextPropagation hands over the context of the current thread to a task that is executed on another thread. The
+ * {@link RequestContext} with tenant, identity, request ID and CallContext as well as the SLF4J {@link MDC} are captured when a
+ * task is wrapped and bound around its execution. Afterwards the previous context of the executing thread is bound again.
+ * <p>
+ * Use it for pooled executors and {@code CompletableFuture}s, that do not inherit any context from the submitting thread:
+ * <pre>
+ * CompletableFuture.supplyAsync(ContextPropagation.wrapSupplier(() -&gt; service.find(id)), executor);
+ * </pre>
+ *
+ * @author Heiko Scherrer
+ */
+public final class ContextPropagation {
+
+    private ContextPropagation() {}
+
+    /**
+     * The context captured on the submitting thread.
+     */
+    private record Snapshot(RequestContext context, Map<String, String> mdc) {
+
+        static Snapshot capture() {
+            return new Snapshot(RequestContext.current(), MDC.getCopyOfContextMap());
+        }
+
+        void run(Runnable task) {
+            var previous = bindMdc(mdc);
+            try {
+                RequestContext.runWith(context, task);
+            } finally {
+                bindMdc(previous);
+            }
+        }
+
+        <T> T call(Callable<T> task) throws Exception {
+            var previous = bindMdc(mdc);
+            try {
+                return RequestContext.callWith(context, task);
+            } finally {
+                bindMdc(previous);
+            }
+        }
+
+        private static Map<String, String> bindMdc(Map<String, String> mdc) {
+            var previous = MDC.getCopyOfContextMap();
+            if (mdc == null || mdc.isEmpty()) {
+                if (previous != null && !previous.isEmpty()) {
+                    MDC.clear();
+                }
+            } else {
+                MDC.setContextMap(mdc);
+            }
+            return previous;
+        }
+    }
+
+    /**
+     * Wrap the {@code task} to run with the context of the current thread.
+     *
+     * @param task The task to wrap
+     * @return The wrapped task
+     */
+    public static Runnable wrap(Runnable task) {
+        var snapshot = Snapshot.capture();
+        return () -> snapshot.run(task);
+    }
+
+    /**
+     * Wrap the {@code task} to be called with the context of the current thread.
+     *
+     * @param task The task to wrap
+     * @param <T> The type of result
+     * @return The wrapped task
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        var snapshot = Snapshot.capture();
+        return () -> snapshot.call(task);
+    }
+
+    /**
+     * Wrap the {@code supplier} to be called with the context of the current thread, e.g. for
+     * {@code CompletableFuture.supplyAsync}.
+     *
+     * @param supplier The supplier to wrap
+     * @param <T> The type of result
+     * @return The wrapped supplier
+     */
+    public static <T> Supplier<T> wrapSupplier(Supplier<T> supplier) {
+        var snapshot = Snapshot.capture();
+        return () -> {
+            try {
+                return snapshot.call(supplier::get);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                // Not thrown by a Supplier
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+}
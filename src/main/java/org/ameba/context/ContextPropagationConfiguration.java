@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.context;
+
+import org.ameba.annotation.ExcludeFromScan;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * A ContextPropagationConfiguration provides a {@link TaskDecorator}, that is applied by Spring Boot to the auto-configured
+ * task executor, so that {@code @Async} methods run with the context of the calling thread. It also sets the
+ * {@link RequestContext.Propagation} from the property {@value RequestContext#PROPAGATION_PROPERTY} of the Spring
+ * {@code Environment}, the same property the {@code RequestContextFilter} is registered with.
+ *
+ * @author Heiko Scherrer
+ */
+@ExcludeFromScan
+@AutoConfiguration
+public class ContextPropagationConfiguration {
+
+    public ContextPropagationConfiguration(@Value("${" + RequestContext.PROPAGATION_PROPERTY + ":#{null}}") String propagation) {
+        if (propagation != null) {
+            RequestContext.setPropagation(RequestContext.parsePropagation(propagation));
+        }
+    }
+
+    @ConditionalOnMissingBean(TaskDecorator.class)
+    public @Bean ContextPropagatingTaskDecorator contextPropagatingTaskDecorator() {
+        return new ContextPropagatingTaskDecorator();
+    }
+}
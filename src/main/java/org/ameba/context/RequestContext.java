@@ -0,0 +1,425 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.context;
+
+import org.ameba.http.ctx.CallContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * A RequestContext is an immutable snapshot of the context of the current request execution: the tenant, the identity, the
+ * request ID and the {@link CallContext}.
+ * <p>
+ * The snapshot is bound to the current thread in one single slot. The {@code TenantHolder},
+ * {@code IdentityContextHolder}, {@code RequestIDHolder} and {@code CallContextHolder} delegate to it, so that the complete
+ * context is captured with {@link #current()} and bound to another thread with {@link #restore(RequestContext)} in one
+ * operation. Changing a value binds a new snapshot, a captured snapshot never changes. The {@link CallContext} itself is
+ * mutable and shared by all snapshots that refer to it.
+ * <p>
+ * How the snapshot is bound is set with the property {@value #PROPAGATION_PROPERTY}. In Spring applications it is read from the
+ * {@code Environment} (e.g. {@code application.yml}) by the {@link ContextPropagationConfiguration}, that also controls the
+ * {@code RequestContextFilter} and the AMQP listener scope, otherwise from the system property of the same name. It can be set
+ * with {@link #setPropagation(Propagation)} as well, before any context is bound:
+ * <ul>
+ *     <li>{@code inheritable} (default): In an {@link InheritableThreadLocal}, that is copied to each new thread.</li>
+ *     <li>{@code scoped}: Bound for the duration of {@link #runWith(RequestContext, Runnable)} and not inherited by new
+ *     threads, what saves the copy for each (virtual) thread and cannot leak the context beyond the scope. On Java 25 and
+ *     later the scope is a {@code java.lang.ScopedValue}, so that subtasks of a {@code StructuredTaskScope} read the context
+ *     of their parent. Before Java 25, including the Java 21 baseline, no {@code ScopedValue} is available and the scope is
+ *     only a plain {@link ThreadLocal} that is bound and reset by {@link #runWith(RequestContext, Runnable)}. Outside of a
+ *     scope a plain {@link ThreadLocal} is used as well. Other threads must capture and restore the context explicitly.</li>
+ * </ul>
+ *
+ * @author Heiko Scherrer
+ */
+public final class RequestContext {
+
+    /** Name of the property to set the {@link Propagation}. */
+    public static final String PROPAGATION_PROPERTY = "ameba.context.propagation";
+
+    private static final RequestContext EMPTY = new RequestContext(null, null, null, null);
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestContext.class);
+    private static volatile Binding binding = new Binding(parsePropagation(System.getProperty(PROPAGATION_PROPERTY)));
+    private final String tenant;
+    private final String identity;
+    private final String requestId;
+    private final Supplier<CallContext> callContext;
+
+    /**
+     * Defines how the RequestContext is bound to threads.
+     */
+    public enum Propagation {
+
+        /** Bound to an {@link InheritableThreadLocal}. */
+        INHERITABLE,
+
+        /** Bound for the duration of a scope and not inherited. */
+        SCOPED
+    }
+
+    /**
+     * The slots the snapshot is bound to with one {@link Propagation}, replaced as a whole when the propagation changes.
+     */
+    private static final class Binding {
+
+        private final Propagation propagation;
+        private final ThreadLocal<RequestContext> current;
+        private final ScopedValueSupport scoped;
+
+        Binding(Propagation propagation) {
+            this.propagation = propagation;
+            this.current = propagation == Propagation.SCOPED ? new ThreadLocal<>() : new InheritableThreadLocal<>();
+            this.scoped = propagation == Propagation.SCOPED ? ScopedValueSupport.create() : null;
+        }
+    }
+
+    /**
+     * The scope bound by {@link #runWith(RequestContext, Runnable)} with a {@code ScopedValue}. Only the thread that opened the
+     * scope changes the context, other threads that see the scope only read it.
+     */
+    static final class Scope {
+
+        private final Thread owner = Thread.currentThread();
+        private volatile RequestContext context;
+
+        Scope(RequestContext context) {
+            this.context = context == null ? EMPTY : context;
+        }
+    }
+
+    private RequestContext(String tenant, String identity, String requestId, Supplier<CallContext> callContext) {
+        this.tenant = tenant;
+        this.identity = identity;
+        this.requestId = requestId;
+        this.callContext = callContext;
+    }
+
+    /**
+     * Return a snapshot without any values.
+     *
+     * @return The empty snapshot
+     */
+    public static RequestContext empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Return the snapshot bound to the current thread.
+     *
+     * @return The snapshot, never {@literal null}
+     */
+    public static RequestContext current() {
+        var binding = RequestContext.binding;
+        var scope = scope(binding);
+        if (scope != null && scope.owner == Thread.currentThread()) {
+            return scope.context;
+        }
+        var current = binding.current.get();
+        if (current == null && scope != null) {
+            // A subtask reads the context of the parent
+            return scope.context;
+        }
+        return current == null ? EMPTY : current;
+    }
+
+    /**
+     * Bind the given snapshot to the current thread, e.g. one that has been captured with {@link #current()} on another
+     * thread.
+     *
+     * @param context The snapshot to bind, {@literal null} or an empty snapshot clears the current thread
+     * @return The snapshot bound before, to restore it afterwards
+     */
+    public static RequestContext restore(RequestContext context) {
+        var previous = current();
+        var binding = RequestContext.binding;
+        var scope = scope(binding);
+        if (scope != null && scope.owner == Thread.currentThread()) {
+            scope.context = context == null ? EMPTY : context;
+        } else if (context == null || context.isEmpty()) {
+            binding.current.remove();
+        } else {
+            binding.current.set(context);
+        }
+        return previous;
+    }
+
+    /**
+     * Run the {@code task} with the given snapshot bound and bind the previous snapshot afterwards, whatever happens in the
+     * task.
+     *
+     * @param context The snapshot to bind
+     * @param task The task to run
+     */
+    public static void runWith(RequestContext context, Runnable task) {
+        var scoped = binding.scoped;
+        if (scoped != null) {
+            scoped.run(new Scope(context), task);
+            return;
+        }
+        var previous = restore(context);
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Call the {@code task} with the given snapshot bound and bind the previous snapshot afterwards, whatever happens in the
+     * task.
+     *
+     * @param context The snapshot to bind
+     * @param task The task to call
+     * @param <T> The type of result
+     * @return The result of the task
+     * @throws Exception Any exception thrown by the task
+     */
+    public static <T> T callWith(RequestContext context, Callable<T> task) throws Exception {
+        var scoped = binding.scoped;
+        if (scoped != null) {
+            var call = new ScopedCall<>(task);
+            scoped.run(new Scope(context), call);
+            return call.result();
+        }
+        var previous = restore(context);
+        try {
+            return task.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Return how the RequestContext is bound to threads.
+     *
+     * @return The propagation mode
+     */
+    public static Propagation getPropagation() {
+        return binding.propagation;
+    }
+
+    /**
+     * Set how the RequestContext is bound to threads. Snapshots bound before are not visible with the new propagation, so
+     * set it at startup before any context is bound.
+     *
+     * @param propagation The propagation mode, {@literal null} means {@link Propagation#INHERITABLE}
+     */
+    public static synchronized void setPropagation(Propagation propagation) {
+        var mode = propagation == null ? Propagation.INHERITABLE : propagation;
+        if (binding.propagation != mode) {
+            binding = new Binding(mode);
+        }
+    }
+
+    /**
+     * Parse the value of the {@value #PROPAGATION_PROPERTY} property, ignoring case and surrounding whitespace.
+     *
+     * @param value The configured value or {@literal null}
+     * @return The propagation mode, {@link Propagation#INHERITABLE} if not set or unknown
+     */
+    static Propagation parsePropagation(String value) {
+        if (value == null || value.isBlank()) {
+            return Propagation.INHERITABLE;
+        }
+        try {
+            return Propagation.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Unknown value [{}] of property [{}], using [{}]", value, PROPAGATION_PROPERTY, Propagation.INHERITABLE);
+            return Propagation.INHERITABLE;
+        }
+    }
+
+    private static Scope scope(Binding binding) {
+        return binding.scoped == null ? null : binding.scoped.get();
+    }
+
+    /**
+     * Calls a {@link Callable} as {@link Runnable} and keeps its outcome.
+     */
+    private static final class ScopedCall<T> implements Runnable {
+
+        private final Callable<T> task;
+        private T result;
+        private Exception failure;
+
+        ScopedCall(Callable<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        T result() throws Exception {
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Bind the result of applying the {@code modification} to the current snapshot.
+     *
+     * @param modification Creates a new snapshot from the current one
+     */
+    public static void update(UnaryOperator<RequestContext> modification) {
+        var current = current();
+        var updated = modification.apply(current);
+        if (updated != current) {
+            restore(updated);
+        }
+    }
+
+    /**
+     * Remove all values from the current thread.
+     */
+    public static void clear() {
+        restore(null);
+    }
+
+    /**
+     * Checks whether no value is set.
+     *
+     * @return {@literal true} if so, otherwise {@literal false}
+     */
+    public boolean isEmpty() {
+        return tenant == null && identity == null && requestId == null && callContext == null;
+    }
+
+    /**
+     * Get the tenant.
+     *
+     * @return The tenant or {@literal null}
+     */
+    public String getTenant() {
+        return tenant;
+    }
+
+    /**
+     * Get the identity of the current user.
+     *
+     * @return The identity or {@literal null}
+     */
+    public String getIdentity() {
+        return identity;
+    }
+
+    /**
+     * Get the request ID.
+     *
+     * @return The request ID or {@literal null}
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Get the {@link CallContext}.
+     *
+     * @return The CallContext or {@literal null}
+     */
+    public CallContext getCallContext() {
+        return callContext == null ? null : callContext.get();
+    }
+
+    /**
+     * Get the supplier of the {@link CallContext}, that may resolve the {@link CallContext} on first access.
+     *
+     * @return The supplier or {@literal null}
+     */
+    public Supplier<CallContext> getCallContextSupplier() {
+        return callContext;
+    }
+
+    /**
+     * Return a snapshot with the given {@code tenant}.
+     *
+     * @param tenant The tenant
+     * @return A new snapshot or this instance if unchanged
+     */
+    public RequestContext withTenant(String tenant) {
+        return Objects.equals(this.tenant, tenant) ? this : new RequestContext(tenant, identity, requestId, callContext);
+    }
+
+    /**
+     * Return a snapshot with the given {@code identity}.
+     *
+     * @param identity The identity
+     * @return A new snapshot or this instance if unchanged
+     */
+    public RequestContext withIdentity(String identity) {
+        return Objects.equals(this.identity, identity) ? this : new RequestContext(tenant, identity, requestId, callContext);
+    }
+
+    /**
+     * Return a snapshot with the given {@code requestId}.
+     *
+     * @param requestId The request ID
+     * @return A new snapshot or this instance if unchanged
+     */
+    public RequestContext withRequestId(String requestId) {
+        return Objects.equals(this.requestId, requestId) ? this : new RequestContext(tenant, identity, requestId, callContext);
+    }
+
+    /**
+     * Return a snapshot with the given {@code callContext}.
+     *
+     * @param callContext The CallContext
+     * @return A new snapshot
+     */
+    public RequestContext withCallContext(CallContext callContext) {
+        Supplier<CallContext> supplier = callContext == null ? null : () -> callContext;
+        return withCallContext(supplier);
+    }
+
+    /**
+     * Return a snapshot with the {@link CallContext} provided by the given {@code callContext} supplier.
+     *
+     * @param callContext Supplies the CallContext, may resolve it on first access
+     * @return A new snapshot or this instance if unchanged
+     */
+    public RequestContext withCallContext(Supplier<CallContext> callContext) {
+        return this.callContext == callContext ? this : new RequestContext(tenant, identity, requestId, callContext);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * All fields, the CallContext is not resolved.
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", RequestContext.class.getSimpleName() + "[", "]")
+                .add("tenant='" + tenant + "'")
+                .add("identity='" + identity + "'")
+                .add("requestId='" + requestId + "'")
+                .add("callContext=" + (callContext != null))
+                .toString();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.context;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * A ScopedValueSupport binds a {@link RequestContext.Scope} with a {@code java.lang.ScopedValue} for the duration of a task.
+ * <p>
+ * {@code ScopedValue} is final since Java 25 and a preview API before. This library is built for Java 21, so the API is
+ * accessed with method handles and only used when the runtime is Java 25 or later.
+ *
+ * @author Heiko Scherrer
+ */
+final class ScopedValueSupport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScopedValueSupport.class);
+    private static final int MIN_FEATURE_VERSION = 25;
+    // Static final, so that the JIT treats the handles as constants
+    private static final MethodHandle IS_BOUND;
+    private static final MethodHandle GET;
+    private static final MethodHandle WHERE;
+    private static final MethodHandle RUN;
+    private static final Object SCOPED_VALUE;
+    private static final ScopedValueSupport INSTANCE;
+
+    static {
+        MethodHandle isBound = null, get = null, where = null, run = null;
+        Object scopedValue = null;
+        if (Runtime.version().feature() < MIN_FEATURE_VERSION) {
+            LOGGER.info("ScopedValue requires Java [{}], the RequestContext is bound to a thread local", MIN_FEATURE_VERSION);
+        } else {
+            try {
+                var type = Class.forName("java.lang.ScopedValue");
+                var carrier = Class.forName("java.lang.ScopedValue$Carrier");
+                var lookup = MethodHandles.publicLookup();
+                scopedValue = lookup.findStatic(type, "newInstance", MethodType.methodType(type)).invoke();
+                isBound = lookup.findVirtual(type, "isBound", MethodType.methodType(boolean.class));
+                get = lookup.findVirtual(type, "get", MethodType.methodType(Object.class));
+                where = lookup.findStatic(type, "where", MethodType.methodType(carrier, type, Object.class));
+                run = lookup.findVirtual(carrier, "run", MethodType.methodType(void.class, Runnable.class));
+            } catch (Throwable e) {
+                LOGGER.warn("ScopedValue is not available, the RequestContext is bound to a thread local: {}", e.getMessage());
+                scopedValue = null;
+            }
+        }
+        IS_BOUND = isBound;
+        GET = get;
+        WHERE = where;
+        RUN = run;
+        SCOPED_VALUE = scopedValue;
+        INSTANCE = scopedValue == null ? null : new ScopedValueSupport();
+    }
+
+    private ScopedValueSupport() {}
+
+    /**
+     * Return the instance if {@code ScopedValue} is available.
+     *
+     * @return The instance or {@literal null} if not available
+     */
+    static ScopedValueSupport create() {
+        return INSTANCE;
+    }
+
+    /**
+     * Return the scope bound to the current thread.
+     *
+     * @return The scope or {@literal null} if not bound
+     */
+    RequestContext.Scope get() {
+        try {
+            return (boolean) IS_BOUND.invoke(SCOPED_VALUE) ? (RequestContext.Scope) GET.invoke(SCOPED_VALUE) : null;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Run the {@code task} with the given {@code scope} bound.
+     *
+     * @param scope The scope to bind
+     * @param task The task to run
+     */
+    void run(RequestContext.Scope scope, Runnable task) {
+        try {
+            RUN.invoke(WHERE.invoke(SCOPED_VALUE, scope), task);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
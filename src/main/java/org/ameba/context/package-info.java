@@ -0,0 +1,4 @@
+/**
+ * This package contains types to carry the context of the current request execution.
+ */
+package org.ameba.context;
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.http;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.ameba.Constants;
+import org.ameba.IDGenerator;
+import org.ameba.LoggingCategories;
+import org.ameba.context.RequestContext;
+import org.ameba.http.identity.Identity;
+import org.ameba.http.identity.IdentityResolverStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A ContextFilter resolves the tenant, the identity and the request ID of an incoming request in a single pass, binds them
+ * to the current {@link RequestContext} and puts tenant and request ID into SLF4J's Mapped Diagnostic Context. It replaces the
+ * chain of {@link org.ameba.http.multitenancy.MultiTenantSessionFilter}, {@link org.ameba.http.multitenancy.SLF4JMappedDiagnosticContextFilter},
+ * {@link org.ameba.http.identity.IdentityFilter} and {@link RequestIDFilter}.
+ * <p>
+ * The properties {@value Constants#PARAM_MULTI_TENANCY_ENABLED}, {@value Constants#PARAM_MULTI_TENANCY_THROW_IF_NOT_PRESENT},
+ * {@value Constants#PARAM_IDENTITY_ENABLED} and {@value Constants#PARAM_IDENTITY_THROW_IF_NOT_PRESENT} are resolved once when
+ * the filter is initialized, either from {@code ServletContext} attributes or from {@link jakarta.servlet.FilterConfig}
+ * parameters whereas the former take precedence. Identity is only resolved if an {@link IdentityResolverStrategy} is given, a
+ * request ID is taken over from the request, or from the current {@link RequestContext} if set upstream, and is only
+ * generated if neither is present and an {@link IDGenerator} is given.
+ *
+ * @author Heiko Scherrer
+ */
+public class ContextFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggingCategories.BOOT);
+    private final IdentityResolverStrategy identityStrategy;
+    private final IDGenerator<String> requestIdGenerator;
+    private boolean multiTenancyEnabled;
+    private boolean tenantRequired;
+    private boolean identityEnabled;
+    private boolean identityRequired;
+
+    public ContextFilter() {
+        this(null, null);
+    }
+
+    /**
+     * Create a filter.
+     *
+     * @param identityStrategy The strategy to resolve the identity with, or {@literal null} to not resolve any identity
+     * @param requestIdGenerator The generator of request IDs, or {@literal null} to only take over the ID of the request
+     */
+    public ContextFilter(IdentityResolverStrategy identityStrategy, IDGenerator<String> requestIdGenerator) {
+        LOGGER.info("Initialized filter {}", this.getClass().getSimpleName());
+        this.identityStrategy = identityStrategy;
+        this.requestIdGenerator = requestIdGenerator;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Resolve the configuration properties once.
+     */
+    @Override
+    protected void initFilterBean() throws ServletException {
+        multiTenancyEnabled = resolveFlag(Constants.PARAM_MULTI_TENANCY_ENABLED);
+        tenantRequired = resolveFlag(Constants.PARAM_MULTI_TENANCY_THROW_IF_NOT_PRESENT);
+        identityEnabled = identityStrategy != null && resolveFlag(Constants.PARAM_IDENTITY_ENABLED);
+        identityRequired = resolveFlag(Constants.PARAM_IDENTITY_THROW_IF_NOT_PRESENT);
+    }
+
+    private boolean resolveFlag(String name) {
+        var fromSC = getServletContext().getAttribute(name);
+        if (fromSC != null) {
+            return Boolean.parseBoolean(fromSC.toString());
+        }
+        return getFilterConfig() != null && Boolean.parseBoolean(getFilterConfig().getInitParameter(name));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String tenant = null;
+        if (multiTenancyEnabled && !"OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            tenant = request.getHeader(Constants.HEADER_VALUE_X_TENANT);
+            if (tenant != null && tenant.isEmpty()) {
+                tenant = null;
+            }
+            if (tenant == null && tenantRequired) {
+                response.setStatus(HttpStatus.BAD_REQUEST.value());
+                throw new IllegalArgumentException(String.format("No tenant information available in http header. Expected header [%s] attribute not present.", Constants.HEADER_VALUE_X_TENANT));
+            }
+        }
+        String identity = null;
+        if (identityEnabled) {
+            Optional<Identity> resolved = identityStrategy.getIdentity(getHeaders(request));
+            if (resolved.isPresent()) {
+                identity = resolved.get().getId();
+            } else if (identityRequired) {
+                response.setStatus(HttpStatus.BAD_REQUEST.value());
+                throw new IllegalArgumentException(String.format("No identity information available in http header. Expected header [%s] attribute not set", Constants.HEADER_VALUE_X_IDENTITY));
+            }
+        }
+        var previous = RequestContext.current();
+        var requestId = request.getHeader(Constants.HEADER_VALUE_X_REQUESTID);
+        if (requestId == null) {
+            // Keep an ID that has been set upstream, e.g. by the RequestIDFilter
+            requestId = previous.getRequestId();
+        }
+        if (requestId == null && requestIdGenerator != null) {
+            requestId = requestIdGenerator.generate();
+        }
+
+        var previousTenantMdc = MDC.get(Constants.HEADER_VALUE_X_TENANT);
+        var previousRequestIdMdc = MDC.get(Constants.HEADER_VALUE_X_REQUESTID);
+        var context = previous;
+        if (tenant != null) {
+            context = context.withTenant(tenant);
+            MDC.put(Constants.HEADER_VALUE_X_TENANT, tenant);
+        }
+        if (identity != null) {
+            context = context.withIdentity(identity);
+        }
+        if (requestId != null) {
+            context = context.withRequestId(requestId);
+            MDC.put(Constants.HEADER_VALUE_X_REQUESTID, requestId);
+        }
+        RequestContext.restore(context);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestContext.restore(previous);
+            restoreMdc(Constants.HEADER_VALUE_X_TENANT, previousTenantMdc);
+            restoreMdc(Constants.HEADER_VALUE_X_REQUESTID, previousRequestIdMdc);
+        }
+    }
+
+    private static void restoreMdc(String key, String previous) {
+        if (previous == null) {
+            MDC.remove(key);
+        } else {
+            MDC.put(key, previous);
+        }
+    }
+
+    private static Map<String, List<String>> getHeaders(HttpServletRequest request) {
+        return Collections.list(request.getHeaderNames())
+                .stream()
+                .collect(Collectors.toMap(
+                        Function.identity(),
+                        h -> Collections.list(request.getHeaders(h))
+                ));
+    }
+}
@@ -22,6 +22,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.ameba.Constants;
 import org.ameba.IDGenerator;
 import org.ameba.LoggingCategories;
+import org.ameba.TimeOrderedIDGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -30,7 +31,9 @@ import java.io.IOException;
 
 /**
  * A RequestIDFilter is responsible to attach a unique id to every incoming request. If the request has already an id assigned it is taken
- * over, otherwise a new id is generated (using an instance of {@link IDGenerator}) and attached to the current context.
+ * over, otherwise a new id is generated (using an instance of {@link IDGenerator}) and attached to the current context. By default
+ * time-ordered UUIDs are generated with a {@link TimeOrderedIDGenerator}, that does not contend on a shared
+ * {@link java.security.SecureRandom} like {@link java.util.UUID#randomUUID()}.
  *
  * @author Heiko Scherrer
  */
@@ -39,6 +42,10 @@ public class RequestIDFilter extends OncePerRequestFilter {
     private static final Logger LOGGER = LoggerFactory.getLogger(LoggingCategories.BOOT);
     private final IDGenerator<String> generator;
 
+    public RequestIDFilter() {
+        this(new TimeOrderedIDGenerator());
+    }
+
     public RequestIDFilter(IDGenerator<String> generator) {
         LOGGER.info("Initialized filter {}", this.getClass().getSimpleName());
         this.generator = generator;
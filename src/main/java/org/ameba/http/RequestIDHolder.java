@@ -15,15 +15,15 @@
  */
 package org.ameba.http;
 
+import org.ameba.context.RequestContext;
+
 /**
- * A RequestHolder stores a requestID inside an inheritable thread local variable.
+ * A RequestHolder stores a requestID inside the thread-bound {@link RequestContext}.
  *
  * @author Heiko Scherrer
  */
 public final class RequestIDHolder {
 
-    private static final InheritableThreadLocal<String> holder = new InheritableThreadLocal<>();
-
     /** Private Constructor. */
     private RequestIDHolder() { }
 
@@ -33,7 +33,7 @@ public final class RequestIDHolder {
      * @return RequestID as String
      */
     public static String getRequestID() {
-        return holder.get();
+        return RequestContext.current().getRequestId();
     }
 
     /**
@@ -42,7 +42,7 @@ public final class RequestIDHolder {
      * @param requestID Request id to set
      */
     public static void setRequestID(String requestID) {
-        holder.set(requestID);
+        RequestContext.update(ctx -> ctx.withRequestId(requestID));
     }
 
     /**
@@ -51,13 +51,13 @@ public final class RequestIDHolder {
      * @return {@literal true} if so, otherwise {@literal false}
      */
     public static boolean hasRequestID() {
-        return holder.get() != null;
+        return RequestContext.current().getRequestId() != null;
     }
 
     /**
      * Cleanup thread local.
      */
     public static void destroy() {
-        holder.remove();
+        RequestContext.update(ctx -> ctx.withRequestId(null));
     }
 }
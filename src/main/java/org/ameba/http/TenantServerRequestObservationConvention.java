@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.http;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import org.ameba.Constants;
+import org.ameba.tenancy.TenantTags;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+
+/**
+ * A TenantServerRequestObservationConvention adds a {@literal tenant} tag to the {@literal http.server.requests} observations,
+ * taken from the {@value Constants#HEADER_VALUE_X_TENANT} header and bounded by a {@link TenantTags}. The header is not
+ * validated, so the number of tag values is only bounded by the {@link TenantTags}, that also removes the meters of tenants that
+ * drop out of the top N when configured by the {@code TenantMetricsConfiguration}.
+ *
+ * @author Heiko Scherrer
+ */
+public class TenantServerRequestObservationConvention extends DefaultServerRequestObservationConvention {
+
+    private final TenantTags tenantTags;
+
+    public TenantServerRequestObservationConvention(TenantTags tenantTags) {
+        this.tenantTags = tenantTags;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+        var tenant = context.getCarrier() == null ? null : context.getCarrier().getHeader(Constants.HEADER_VALUE_X_TENANT);
+        return super.getLowCardinalityKeyValues(context).and(KeyValue.of("tenant", tenantTags.tag(tenant)));
+    }
+}
@@ -15,13 +15,18 @@
  */
 package org.ameba.http;
 
+import jakarta.servlet.DispatcherType;
 import org.ameba.annotation.ExcludeFromScan;
+import org.ameba.context.RequestContext;
 import org.ameba.http.ctx.CallContextClientRequestInterceptor;
 import org.ameba.http.identity.IdentityClientRequestInterceptor;
 import org.ameba.http.multitenancy.TenantClientRequestInterceptor;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.ArrayList;
@@ -51,4 +56,18 @@ public class WebMvcConfiguration implements WebMvcConfigurer {
                 new TenantClientRequestInterceptor()
         ));
     }
+
+    /**
+     * Registers the RequestContextFilter in front of all other filters, when the {@link RequestContext} is propagated with
+     * scopes.
+     *
+     * @return The registration bean instance
+     */
+    @ConditionalOnProperty(name = RequestContext.PROPAGATION_PROPERTY, havingValue = "scoped")
+    public @Bean FilterRegistrationBean<RequestContextFilter> requestContextFilter() {
+        var registration = new FilterRegistrationBean<>(new RequestContextFilter());
+        registration.setDispatcherTypes(DispatcherType.REQUEST);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
 }
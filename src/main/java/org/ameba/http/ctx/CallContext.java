@@ -20,14 +20,25 @@ import org.ameba.annotation.Default;
 
 import java.beans.ConstructorProperties;
 import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * A CallContext stores technical information about the current request execution.
+ * <p>
+ * Each change to the caller, the traceId or the details increments the {@link #version()} of the instance, so that the
+ * encoded form can be reused until the instance is changed. Changes through the {@link Map#keySet()},
+ * {@link Map#values()} and {@link Map#entrySet()} views of the details are tracked as well.
  *
  * @author Heiko Scherrer
  */
@@ -37,8 +48,21 @@ public class CallContext implements Serializable {
     private String caller;
     /** The traceId of the current call context. */
     private String traceId;
+    /** Incremented on each change of the caller, the traceId or the details, shared with the {@link Details}. */
+    private final AtomicLong version = new AtomicLong();
     /** Arbitrary details populated as part of the {@link CallContext}. */
-    private Map<String, Serializable> details = new HashMap<>();
+    private Details details = new Details(version);
+    /** The encoded form of this instance, maintained by the {@link CallContextHolder}. */
+    transient volatile Encoded encoded;
+
+    /**
+     * The encoded form of a CallContext.
+     *
+     * @param version The version of the CallContext that has been encoded
+     * @param encoding The encoding used
+     * @param value The encoded String
+     */
+    record Encoded(long version, CallContextEncoding encoding, String value) { }
 
     @Default
     public CallContext() {}
@@ -58,7 +82,10 @@ public class CallContext implements Serializable {
     }
 
     void setCaller(String caller) {
-        this.caller = caller;
+        if (!Objects.equals(this.caller, caller)) {
+            this.caller = caller;
+            version.incrementAndGet();
+        }
     }
 
     /**
@@ -81,7 +108,10 @@ public class CallContext implements Serializable {
     }
 
     public void setTraceId(String traceId) {
-        this.traceId = traceId;
+        if (!Objects.equals(this.traceId, traceId)) {
+            this.traceId = traceId;
+            version.incrementAndGet();
+        }
     }
 
     /**
@@ -94,7 +124,17 @@ public class CallContext implements Serializable {
     }
 
     void setDetails(Map<String, Serializable> details) {
-        this.details = details;
+        this.details = details == null ? new Details(version) : new Details(version, details);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Return the version of this instance that changes with each modification.
+     *
+     * @return The version
+     */
+    long version() {
+        return version.get();
     }
 
     /**
@@ -133,4 +173,236 @@ public class CallContext implements Serializable {
                 .add("details=" + details)
                 .toString();
     }
+
+    /**
+     * A HashMap that increments the version of its {@link CallContext} on each modification.
+     */
+    private static final class Details extends HashMap<String, Serializable> {
+
+        private static final long serialVersionUID = 1L;
+        private final AtomicLong version;
+
+        Details(AtomicLong version) {
+            super();
+            this.version = version;
+        }
+
+        Details(AtomicLong version, Map<String, Serializable> details) {
+            super(details);
+            this.version = version;
+        }
+
+        @Override
+        public Serializable put(String key, Serializable value) {
+            version.incrementAndGet();
+            return super.put(key, value);
+        }
+
+        @Override
+        public void putAll(Map<? extends String, ? extends Serializable> m) {
+            version.incrementAndGet();
+            super.putAll(m);
+        }
+
+        @Override
+        public Serializable remove(Object key) {
+            version.incrementAndGet();
+            return super.remove(key);
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            version.incrementAndGet();
+            return super.remove(key, value);
+        }
+
+        @Override
+        public void clear() {
+            version.incrementAndGet();
+            super.clear();
+        }
+
+        @Override
+        public Serializable putIfAbsent(String key, Serializable value) {
+            version.incrementAndGet();
+            return super.putIfAbsent(key, value);
+        }
+
+        @Override
+        public boolean replace(String key, Serializable oldValue, Serializable newValue) {
+            version.incrementAndGet();
+            return super.replace(key, oldValue, newValue);
+        }
+
+        @Override
+        public Serializable replace(String key, Serializable value) {
+            version.incrementAndGet();
+            return super.replace(key, value);
+        }
+
+        @Override
+        public void replaceAll(BiFunction<? super String, ? super Serializable, ? extends Serializable> function) {
+            version.incrementAndGet();
+            super.replaceAll(function);
+        }
+
+        @Override
+        public Serializable computeIfAbsent(String key, Function<? super String, ? extends Serializable> mappingFunction) {
+            version.incrementAndGet();
+            return super.computeIfAbsent(key, mappingFunction);
+        }
+
+        @Override
+        public Serializable computeIfPresent(String key, BiFunction<? super String, ? super Serializable, ? extends Serializable> remappingFunction) {
+            version.incrementAndGet();
+            return super.computeIfPresent(key, remappingFunction);
+        }
+
+        @Override
+        public Serializable compute(String key, BiFunction<? super String, ? super Serializable, ? extends Serializable> remappingFunction) {
+            version.incrementAndGet();
+            return super.compute(key, remappingFunction);
+        }
+
+        @Override
+        public Serializable merge(String key, Serializable value, BiFunction<? super Serializable, ? super Serializable, ? extends Serializable> remappingFunction) {
+            version.incrementAndGet();
+            return super.merge(key, value, remappingFunction);
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return new DetailsSet<>(super.keySet(), Function.identity(), version);
+        }
+
+        @Override
+        public Collection<Serializable> values() {
+            return new DetailsCollection<>(super.values(), Function.identity(), version);
+        }
+
+        @Override
+        public Set<Entry<String, Serializable>> entrySet() {
+            return new DetailsSet<>(super.entrySet(), e -> new DetailsEntry(e, version), version);
+        }
+    }
+
+    /**
+     * A view of the {@link Details} that increments the version on each removal.
+     */
+    private static class DetailsCollection<E> extends AbstractCollection<E> {
+
+        private final Collection<E> delegate;
+        private final Function<E, E> wrapper;
+        private final AtomicLong version;
+
+        DetailsCollection(Collection<E> delegate, Function<E, E> wrapper, AtomicLong version) {
+            this.delegate = delegate;
+            this.wrapper = wrapper;
+            this.version = version;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            var iterator = delegate.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return wrapper.apply(iterator.next());
+                }
+
+                @Override
+                public void remove() {
+                    version.incrementAndGet();
+                    iterator.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return delegate.contains(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            version.incrementAndGet();
+            return delegate.remove(o);
+        }
+
+        @Override
+        public void clear() {
+            version.incrementAndGet();
+            delegate.clear();
+        }
+    }
+
+    /**
+     * A {@link Set} view of the {@link Details} that increments the version on each removal.
+     */
+    private static final class DetailsSet<E> extends DetailsCollection<E> implements Set<E> {
+
+        private final Set<E> delegate;
+
+        DetailsSet(Set<E> delegate, Function<E, E> wrapper, AtomicLong version) {
+            super(delegate, wrapper, version);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o == this || delegate.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return delegate.hashCode();
+        }
+    }
+
+    /**
+     * An entry of the {@link Details} that increments the version when its value is set.
+     */
+    private record DetailsEntry(Map.Entry<String, Serializable> delegate, AtomicLong version) implements Map.Entry<String, Serializable> {
+
+        @Override
+        public String getKey() {
+            return delegate.getKey();
+        }
+
+        @Override
+        public Serializable getValue() {
+            return delegate.getValue();
+        }
+
+        @Override
+        public Serializable setValue(Serializable value) {
+            version.incrementAndGet();
+            return delegate.setValue(value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return delegate.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return delegate.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
 }
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.http.ctx;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A CallContextCodec encodes a {@link CallContext} into the String representation that is transferred between services and
+ * decodes it again. The Jackson reader and writer are immutable and shared by all threads.
+ * <p>
+ * The {@link CallContextEncoding#JSON} encoding is Base64 encoded JSON. The {@link CallContextEncoding#BINARY} encoding is
+ * prefixed with {@value #BINARY_PREFIX}, followed by the unpadded Base64URL encoding of:
+ * <pre>
+ * byte    flags              bit 0 set if the details section is deflated
+ * string  caller
+ * string  traceId
+ * varint  length of the details section, followed by the details section:
+ *   varint  number of details, followed by one pair of string key and value per detail
+ * </pre>
+ * A {@code varint} is an unsigned LEB128 integer. A {@code string} is a varint of the UTF-8 length plus one, followed by the
+ * UTF-8 bytes, where zero means {@literal null}. A value is one tag byte followed by its payload: {@literal null} (0), string
+ * (1), int (2, varint zigzag), long (3, varint zigzag), boolean (4, one byte), double (5, 8 bytes) or JSON bytes for any other
+ * type (6, string). Because {@code .} is not part of the Base64 alphabet, a prefix never collides with a JSON encoding.
+ *
+ * @author Heiko Scherrer
+ */
+final class CallContextCodec {
+
+    /** Prefix of the {@link CallContextEncoding#BINARY} encoding. */
+    static final String BINARY_PREFIX = "v2.";
+    /** Details sections larger than this are deflated, if it saves space. */
+    static final int DEFLATE_THRESHOLD = 256;
+    /** The maximum size of an inflated details section. */
+    static final int MAX_DETAILS_SIZE = 64 * 1024;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectWriter WRITER = MAPPER.writerFor(CallContext.class);
+    private static final ObjectReader READER = MAPPER.readerFor(CallContext.class);
+    private static final ObjectReader VALUE_READER = MAPPER.readerFor(Object.class);
+    private static final int FLAG_DEFLATED = 1;
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte JSON = 6;
+
+    private CallContextCodec() {}
+
+    /**
+     * Encode the {@code callContext} as Base64 encoded JSON.
+     *
+     * @param callContext The instance to encode
+     * @return The encoded String
+     * @throws IOException in case the instance cannot be serialized
+     */
+    static String encode(CallContext callContext) throws IOException {
+        return encode(callContext, CallContextEncoding.JSON);
+    }
+
+    /**
+     * Encode the {@code callContext} with the given {@code encoding}.
+     *
+     * @param callContext The instance to encode
+     * @param encoding The encoding to use
+     * @return The encoded String
+     * @throws IOException in case the instance cannot be serialized
+     */
+    static String encode(CallContext callContext, CallContextEncoding encoding) throws IOException {
+        if (encoding == CallContextEncoding.BINARY) {
+            return BINARY_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(toBinary(callContext));
+        }
+        var out = new ByteArrayOutputStream(256);
+        // Base64 is written straight into the buffer, closing the wrapping stream writes the padding
+        WRITER.writeValue(Base64.getEncoder().wrap(out), callContext);
+        return out.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Decode a {@link CallContext} from the given {@code encoded} String in any supported encoding.
+     *
+     * @param encoded The encoded String
+     * @return The instance
+     * @throws IOException in case the String is not a valid encoded CallContext
+     */
+    static CallContext decode(String encoded) throws IOException {
+        try {
+            if (encoded.startsWith(BINARY_PREFIX)) {
+                return fromBinary(Base64.getUrlDecoder().decode(encoded.substring(BINARY_PREFIX.length())));
+            }
+            return READER.readValue(Base64.getDecoder().decode(encoded));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("CallContext is not properly Base64 encoded", e);
+        }
+    }
+
+    private static byte[] toBinary(CallContext callContext) throws IOException {
+        var details = new Output(128);
+        details.writeVarint(callContext.getDetails().size());
+        for (var entry : callContext.getDetails().entrySet()) {
+            details.writeString(entry.getKey());
+            writeValue(details, entry.getValue());
+        }
+        var flags = 0;
+        var section = details.toByteArray();
+        if (section.length > DEFLATE_THRESHOLD) {
+            var deflated = deflate(section);
+            if (deflated.length < section.length) {
+                section = deflated;
+                flags |= FLAG_DEFLATED;
+            }
+        }
+        var out = new Output(section.length + 64);
+        out.write(flags);
+        out.writeString(callContext.getCaller());
+        out.writeString(callContext.getTraceId());
+        out.writeVarint(section.length);
+        out.write(section, 0, section.length);
+        return out.toByteArray();
+    }
+
+    private static void writeValue(Output out, Serializable value) throws IOException {
+        if (value == null) {
+            out.write(NULL);
+        } else if (value instanceof String s) {
+            out.write(STRING);
+            out.writeString(s);
+        } else if (value instanceof Integer i) {
+            out.write(INT);
+            out.writeVarint((i << 1) ^ (i >> 31));
+        } else if (value instanceof Long l) {
+            out.write(LONG);
+            out.writeVarlong((l << 1) ^ (l >> 63));
+        } else if (value instanceof Boolean b) {
+            out.write(BOOLEAN);
+            out.write(b ? 1 : 0);
+        } else if (value instanceof Double d) {
+            out.write(DOUBLE);
+            var bits = Double.doubleToRawLongBits(d);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        } else {
+            out.write(JSON);
+            var json = MAPPER.writeValueAsBytes(value);
+            out.writeVarint(json.length + 1);
+            out.write(json, 0, json.length);
+        }
+    }
+
+    private static CallContext fromBinary(byte[] bytes) throws IOException {
+        var in = new Input(bytes, 0, bytes.length);
+        var flags = in.read();
+        var result = new CallContext(in.readString());
+        result.setTraceId(in.readString());
+        var length = in.readVarint();
+        var section = in.slice(length);
+        if ((flags & FLAG_DEFLATED) != 0) {
+            section = inflate(section);
+        }
+        var count = section.readVarint();
+        var details = new HashMap<String, Serializable>(Math.min(count, 64) * 2);
+        for (int i = 0; i < count; i++) {
+            details.put(section.readString(), readValue(section));
+        }
+        result.setDetails(details);
+        return result;
+    }
+
+    private static Serializable readValue(Input in) throws IOException {
+        var tag = in.read();
+        return switch (tag) {
+            case NULL -> null;
+            case STRING -> in.readString();
+            case INT -> {
+                var v = (int) in.readVarlong();
+                yield (v >>> 1) ^ -(v & 1);
+            }
+            case LONG -> {
+                var v = in.readVarlong();
+                yield (v >>> 1) ^ -(v & 1);
+            }
+            case BOOLEAN -> in.read() != 0;
+            case DOUBLE -> {
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = (bits << 8) | in.read();
+                }
+                yield Double.longBitsToDouble(bits);
+            }
+            case JSON -> {
+                var length = in.readVarint() - 1;
+                var json = in.slice(length);
+                var value = VALUE_READER.readValue(json.bytes, json.pos, length);
+                if (value != null && !(value instanceof Serializable)) {
+                    throw new IOException("Detail of CallContext is not Serializable");
+                }
+                yield (Serializable) value;
+            }
+            default -> throw new IOException("Unknown type [%d] of CallContext detail".formatted(tag));
+        };
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            var out = new ByteArrayOutputStream(bytes.length / 2);
+            var buffer = new byte[512];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static Input inflate(Input in) throws IOException {
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(in.bytes, in.pos, in.end - in.pos);
+            var out = new ByteArrayOutputStream((in.end - in.pos) * 4);
+            var buffer = new byte[512];
+            while (!inflater.finished()) {
+                var n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Details of CallContext are truncated");
+                }
+                if (out.size() + n > MAX_DETAILS_SIZE) {
+                    throw new IOException("Details of CallContext exceed [%d] bytes".formatted(MAX_DETAILS_SIZE));
+                }
+                out.write(buffer, 0, n);
+            }
+            var bytes = out.toByteArray();
+            return new Input(bytes, 0, bytes.length);
+        } catch (DataFormatException e) {
+            throw new IOException("Details of CallContext cannot be inflated", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Writes varints and strings into a growing buffer.
+     */
+    private static final class Output extends ByteArrayOutputStream {
+
+        Output(int size) {
+            super(size);
+        }
+
+        void writeVarint(int value) {
+            writeVarlong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarlong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                write(0);
+                return;
+            }
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Reads varints and strings from a byte array and fails on any read beyond its end.
+     */
+    private static final class Input {
+
+        private final byte[] bytes;
+        private final int end;
+        private int pos;
+
+        Input(byte[] bytes, int pos, int end) {
+            this.bytes = bytes;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        int read() throws IOException {
+            if (pos >= end) {
+                throw new IOException("CallContext is truncated");
+            }
+            return bytes[pos++] & 0xFF;
+        }
+
+        int readVarint() throws IOException {
+            var value = readVarlong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IOException("CallContext contains an invalid length");
+            }
+            return (int) value;
+        }
+
+        long readVarlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                var b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("CallContext contains an invalid varint");
+        }
+
+        String readString() throws IOException {
+            var length = readVarint();
+            if (length == 0) {
+                return null;
+            }
+            var slice = slice(length - 1);
+            return new String(bytes, slice.pos, length - 1, StandardCharsets.UTF_8);
+        }
+
+        Input slice(int length) throws IOException {
+            if (length < 0 || length > end - pos) {
+                throw new IOException("CallContext is truncated");
+            }
+            var slice = new Input(bytes, pos, pos + length);
+            pos += length;
+            return slice;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.http.ctx;
+
+import org.ameba.annotation.ExcludeFromScan;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+
+/**
+ * A CallContextConfiguration binds the {@link CallContextEncoding} of propagated {@link CallContext}s from the property
+ * {@value CallContextHolder#ENCODING_PROPERTY} of the Spring {@code Environment}, so that it can be set in the application
+ * configuration like all other {@code ameba.*} properties.
+ *
+ * @author Heiko Scherrer
+ */
+@ExcludeFromScan
+@AutoConfiguration
+public class CallContextConfiguration {
+
+    public CallContextConfiguration(@Value("${" + CallContextHolder.ENCODING_PROPERTY + ":#{null}}") String encoding) {
+        if (encoding != null) {
+            CallContextHolder.setEncoding(CallContextHolder.parseEncoding(encoding));
+        }
+    }
+}
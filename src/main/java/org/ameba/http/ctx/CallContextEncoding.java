@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.http.ctx;
+
+/**
+ * A CallContextEncoding defines how the {@link CallContext} is encoded when it is propagated to other services.
+ * <p>
+ * A receiver decodes all encodings, because the encoding is identified by the encoded value itself. In a fleet of mixed
+ * versions all receivers must be updated before senders switch to {@link #BINARY}.
+ *
+ * @author Heiko Scherrer
+ */
+public enum CallContextEncoding {
+
+    /** Base64 encoded JSON, understood by all versions. */
+    JSON,
+
+    /** Compact binary format with length-prefixed fields, identified by the version prefix {@code v2.}. */
+    BINARY
+}
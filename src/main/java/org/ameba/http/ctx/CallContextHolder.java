@@ -15,38 +15,113 @@
  */
 package org.ameba.http.ctx;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.ameba.context.RequestContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.Base64;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Supplier;
 
 import static org.ameba.LoggingCategories.CALL_CONTEXT;
 
 /**
- * A CallContextHolder provides access to the {@link CallContext} of the current request execution.
+ * A CallContextHolder provides access to the {@link CallContext} of the current request execution, that is kept in the
+ * thread-bound {@link RequestContext}.
+ * <p>
+ * The {@link CallContextEncoding} used to propagate the {@link CallContext} is set with the property {@value #ENCODING_PROPERTY}
+ * of the Spring {@code Environment} (see {@link CallContextConfiguration}), the system property of the same name or with
+ * {@link #setEncoding(CallContextEncoding)} and defaults to {@link CallContextEncoding#JSON}. An unknown encoding is logged and
+ * ignored. Encoded {@link CallContext}s are decoded in any encoding.
  *
  * @author Heiko Scherrer
  */
 public final class CallContextHolder {
 
+    /** Name of the property to set the {@link CallContextEncoding} of propagated {@link CallContext}s. */
+    public static final String ENCODING_PROPERTY = "ameba.callcontext.encoding";
+
     private static final Logger EXC_LOGGER = LoggerFactory.getLogger(CallContextHolder.class);
     private static final Logger LOGGER = LoggerFactory.getLogger(CALL_CONTEXT);
-    private static final InheritableThreadLocal<CallContext> callContext = new InheritableThreadLocal<>();
+    private static volatile CallContextEncoding encoding = parseEncoding(System.getProperty(ENCODING_PROPERTY));
 
     private CallContextHolder() {}
 
     /**
-     * Retrieve the current {@link CallContext}.
+     * Holds an encoded {@link CallContext} that is decoded on first access, together with the caller to apply afterwards.
+     */
+    private static final class LazyCallContext implements Supplier<CallContext> {
+
+        private final String encoded;
+        private String caller;
+        private CallContext callContext;
+        private boolean decoded;
+
+        LazyCallContext(String encoded) {
+            this.encoded = encoded;
+        }
+
+        LazyCallContext(CallContext callContext) {
+            this.encoded = null;
+            this.callContext = callContext;
+            this.decoded = true;
+        }
+
+        @Override
+        public synchronized CallContext get() {
+            if (!decoded) {
+                decoded = true;
+                try {
+                    callContext = CallContextCodec.decode(encoded);
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("CTXHolder: Decoded CallContext [{}]", callContext);
+                    }
+                    if (caller != null) {
+                        callContext.setCaller(caller);
+                    }
+                } catch (IOException e) {
+                    EXC_LOGGER.error("Decoded CallContext does not match the current CallContext version of the receiver. " + e.getMessage(), e);
+                }
+            }
+            return callContext;
+        }
+
+        synchronized void setCaller(String caller) {
+            if (decoded) {
+                if (callContext != null) {
+                    callContext.setCaller(caller);
+                }
+            } else {
+                this.caller = caller;
+            }
+        }
+
+        /**
+         * Return the encoded form as received, as long as it has not been decoded or changed.
+         */
+        synchronized String getUnchanged() {
+            return decoded || caller != null ? null : encoded;
+        }
+    }
+
+    private static LazyCallContext current() {
+        var supplier = RequestContext.current().getCallContextSupplier();
+        if (supplier == null || supplier instanceof LazyCallContext) {
+            return (LazyCallContext) supplier;
+        }
+        return new LazyCallContext(supplier.get());
+    }
+
+    /**
+     * Retrieve the current {@link CallContext}. A received {@link CallContext} is decoded on first access.
      *
      * @return The thread-bound instance
      */
     public static Optional<CallContext> getOptionalCallContext() {
-        return Optional.ofNullable(callContext.get());
+        var lazy = current();
+        return lazy == null ? Optional.empty() : Optional.ofNullable(lazy.get());
     }
 
     /**
@@ -55,60 +130,126 @@ public final class CallContextHolder {
      * @param caller The callerId
      */
     static void setCaller(Supplier<String> caller) {
-        if (caller == null || caller.get() == null || caller.get().isEmpty()) {
+        var value = caller == null ? null : caller.get();
+        if (value == null || value.isEmpty()) {
             if (LOGGER.isTraceEnabled()) {
                 LOGGER.trace("CTXHolder: No caller to set in context");
             }
             return;
         }
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("CTXHolder: Populating context with caller [{}]", caller.get());
+            LOGGER.debug("CTXHolder: Populating context with caller [{}]", value);
+        }
+        var lazy = current();
+        if (lazy != null) {
+            lazy.setCaller(value);
         }
-        getOptionalCallContext().ifPresent(cc -> cc.setCaller(caller.get()));
     }
 
     /**
-     * Get the {@link CallContext} as base64 encoded String.
+     * Get the {@link CallContext} as base64 encoded String. A received {@link CallContext} that has not been accessed is
+     * returned as received without decoding it. Otherwise the encoded String is reused until the {@link CallContext} is
+     * changed.
      *
      * @return Base64 encoded String
      */
     public static Optional<String> getEncodedCallContext() {
-        if (callContext.get() == null) {
+        var lazy = current();
+        if (lazy == null) {
+            return Optional.empty();
+        }
+        var unchanged = lazy.getUnchanged();
+        if (unchanged != null) {
+            return Optional.of(unchanged);
+        }
+        var ctx = lazy.get();
+        if (ctx == null) {
             return Optional.empty();
         }
+        var version = ctx.version();
+        var currentEncoding = encoding;
+        var encoded = ctx.encoded;
+        if (encoded != null && encoded.version() == version && encoded.encoding() == currentEncoding) {
+            return Optional.of(encoded.value());
+        }
         try {
-            var om = new ObjectMapper();
-            return Optional.of(Base64.getEncoder().encodeToString(om.writeValueAsBytes(callContext.get())));
-        } catch (JsonProcessingException e) {
+            // The version is taken before encoding, a concurrent change causes encoding again on the next call
+            var value = CallContextCodec.encode(ctx, currentEncoding);
+            ctx.encoded = new CallContext.Encoded(version, currentEncoding, value);
+            return Optional.of(value);
+        } catch (IOException e) {
             EXC_LOGGER.error(e.getMessage(), e);
         }
         return Optional.empty();
     }
 
     /**
-     * Initialize the {@link CallContext} with the given base64 encoded {@code callContextString}.
+     * Initialize the {@link CallContext} with the given encoded {@code callContextString}. The String is decoded on first
+     * access to the {@link CallContext}.
      *
-     * @param callContextString The base64 encoded CallContext as String
+     * @param callContextString The encoded CallContext as String, in any {@link CallContextEncoding}
      * @param defaultCallContext The default CallContext used when no CallContext is provided by callContextString
      */
     public static void setCallContext(Supplier<String> callContextString, CallContext defaultCallContext) {
-        if (callContextString == null || callContextString.get() == null || callContextString.get().isEmpty()) {
+        setCallContext(callContextString, () -> defaultCallContext);
+    }
+
+    /**
+     * Initialize the {@link CallContext} with the given encoded {@code callContextString}. The String is decoded on first
+     * access to the {@link CallContext}.
+     *
+     * @param callContextString The encoded CallContext as String, in any {@link CallContextEncoding}
+     * @param defaultCallContext Supplies the default CallContext, only called when no CallContext is provided by
+     * callContextString
+     */
+    public static void setCallContext(Supplier<String> callContextString, Supplier<CallContext> defaultCallContext) {
+        var encoded = callContextString == null ? null : callContextString.get();
+        if (encoded == null || encoded.isEmpty()) {
+            var ctx = defaultCallContext.get();
             if (LOGGER.isTraceEnabled()) {
-                LOGGER.trace("CTXHolder: Initialized CallContext [{}] with default", defaultCallContext);
+                LOGGER.trace("CTXHolder: Initialized CallContext [{}] with default", ctx);
             }
-            callContext.set(defaultCallContext);
+            RequestContext.update(current -> current.withCallContext(ctx == null ? null : new LazyCallContext(ctx)));
             return;
         }
-        var binaryCallContext = Base64.getDecoder().decode(callContextString.get());
+        RequestContext.update(current -> current.withCallContext(new LazyCallContext(encoded)));
+    }
+
+    /**
+     * Get the {@link CallContextEncoding} used to propagate the {@link CallContext}.
+     *
+     * @return The encoding
+     */
+    public static CallContextEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Set the {@link CallContextEncoding} used to propagate the {@link CallContext}. Switch to
+     * {@link CallContextEncoding#BINARY} only when all receivers are able to decode it.
+     *
+     * @param encoding The encoding
+     */
+    public static void setEncoding(CallContextEncoding encoding) {
+        CallContextHolder.encoding = Objects.requireNonNull(encoding, "encoding must not be null");
+    }
+
+    /**
+     * Parse the configured {@code value} of the {@link CallContextEncoding}, case-insensitive.
+     *
+     * @param value The configured value, may be {@literal null}
+     * @return The encoding, {@link CallContextEncoding#JSON} if not set or unknown
+     */
+    static CallContextEncoding parseEncoding(String value) {
+        if (value == null || value.isBlank()) {
+            return CallContextEncoding.JSON;
+        }
         try {
-            var om = new ObjectMapper();
-            var ctx = om.readValue(binaryCallContext, CallContext.class);
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("CTXHolder: Decoded CallContext [{}]", ctx);
-            }
-            callContext.set(ctx);
-        } catch (IOException e) {
-            EXC_LOGGER.error("Decoded CallContext does not match the current CallContext version of the receiver. " + e.getMessage(), e);
+            return CallContextEncoding.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            EXC_LOGGER.warn("Unknown CallContext encoding [{}] configured with [{}], falling back to [{}]", value, ENCODING_PROPERTY,
+                    CallContextEncoding.JSON);
+            return CallContextEncoding.JSON;
         }
     }
 
@@ -116,6 +257,6 @@ public final class CallContextHolder {
      * Destroy the thread-bound {@link CallContext}.
      */
     static void destroy() {
-        callContext.remove();
+        RequestContext.update(current -> current.withCallContext((Supplier<CallContext>) null));
     }
 }
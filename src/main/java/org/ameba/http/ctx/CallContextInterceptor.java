@@ -53,7 +53,7 @@ public class CallContextInterceptor implements HandlerInterceptor {
         if (LOGGER.isTraceEnabled()) {
             LOGGER.trace("CTXInterceptor: Enter preHandle");
         }
-        CallContextHolder.setCallContext(() -> request.getHeader(HEADER_VALUE_X_CALL_CONTEXT), callContextProvider.getInitialCallContext());
+        CallContextHolder.setCallContext(() -> request.getHeader(HEADER_VALUE_X_CALL_CONTEXT), callContextProvider::getInitialCallContext);
         CallContextHolder.setCaller(() -> request.getHeader(HEADER_VALUE_X_CALLERID));
         return HandlerInterceptor.super.preHandle(request, response, handler);
     }
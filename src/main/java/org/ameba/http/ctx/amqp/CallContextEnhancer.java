@@ -33,9 +33,7 @@ public class CallContextEnhancer implements MessageHeaderEnhancer {
     public void enhance(final RabbitTemplate rabbitTemplate) {
         rabbitTemplate.addBeforePublishPostProcessors(
             m -> {
-                if (CallContextHolder.getEncodedCallContext().isPresent()) {
-                    m.getMessageProperties().getHeaders().put("owms_callcontext", CallContextHolder.getEncodedCallContext().get());
-                }
+                CallContextHolder.getEncodedCallContext().ifPresent(ctx -> m.getMessageProperties().getHeaders().put("owms_callcontext", ctx));
                 return m;
             }
         );
@@ -42,7 +42,7 @@ class CallContextHeaderResolver implements MessagePostProcessorProvider {
             if (m.getMessageProperties().getHeaders().containsKey("owms_callcontext")) {
                 CallContextHolder.setCallContext(
                         () -> (String) m.getMessageProperties().getHeaders().get("owms_callcontext"),
-                        callContextProvider.getInitialCallContext());
+                        callContextProvider::getInitialCallContext);
             }
             return m;
         });
@@ -17,10 +17,15 @@ package org.ameba.http.identity;
 
 import jakarta.servlet.DispatcherType;
 import org.ameba.annotation.ExcludeFromScan;
+import org.ameba.http.multitenancy.MultiTenancyConfiguration;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * A IdentityConfiguration is not meant to be scanned by application code, therefor it is {@link ExcludeFromScan} and not in the {@literal app}
  * package. It is responsible to setup support for identity propagation.
@@ -41,13 +46,15 @@ public class IdentityConfiguration {
     public static IdentityResolverStrategy strategy;
 
     /**
-     * Registers the IdentityFilter filter.
+     * Registers the IdentityFilter filter. The registration is disabled if multi-tenancy is enabled for the same URL patterns,
+     * because the identity is then resolved by the {@link org.ameba.http.ContextFilter}.
      *
      * @return The registration bean instance
      */
     public @Bean FilterRegistrationBean identityFilterRegistrationBean() {
         var registration = new FilterRegistrationBean<>(new IdentityFilter(strategy));
         registration.setDispatcherTypes(DispatcherType.REQUEST);
+        registration.setEnabled(!resolvedByContextFilter());
         if (urlPatterns != null) {
             registration.addUrlPatterns(urlPatterns);
         }
@@ -55,4 +62,18 @@ public class IdentityConfiguration {
         registration.addInitParameter(org.ameba.Constants.PARAM_IDENTITY_THROW_IF_NOT_PRESENT, String.valueOf(throwIfNotPresent));
         return registration;
     }
+
+    /**
+     * Check whether the identity is resolved by the {@link org.ameba.http.ContextFilter} instead of the IdentityFilter. This
+     * is the case if multi-tenancy is enabled and filters the same URL patterns.
+     *
+     * @return {@literal true} if the ContextFilter resolves the identity
+     */
+    public static boolean resolvedByContextFilter() {
+        return MultiTenancyConfiguration.enabled && patterns(urlPatterns).equals(patterns(MultiTenancyConfiguration.urlPatterns));
+    }
+
+    private static Set<String> patterns(String[] urlPatterns) {
+        return urlPatterns == null || urlPatterns.length == 0 ? Set.of("/*") : new HashSet<>(Arrays.asList(urlPatterns));
+    }
 }
@@ -15,18 +15,18 @@
  */
 package org.ameba.http.identity;
 
+import org.ameba.context.RequestContext;
+
 import java.util.Optional;
 import java.util.function.Consumer;
 
 /**
- * A IdentityContextHolder stores the current user's identity for the current thread context.
+ * A IdentityContextHolder stores the current user's identity in the thread-bound {@link RequestContext}.
  *
  * @author Heiko Scherrer
  */
 public class IdentityContextHolder {
 
-    private static final InheritableThreadLocal<String> identityHolder = new InheritableThreadLocal<>();
-
     /** Private Constructor. */
     private IdentityContextHolder() {}
 
@@ -36,7 +36,7 @@ public class IdentityContextHolder {
      * @return Identity as String
      */
     public static String getCurrentIdentity() {
-        return identityHolder.get();
+        return RequestContext.current().getIdentity();
     }
 
     /**
@@ -45,10 +45,11 @@ public class IdentityContextHolder {
      * @return Identity as String
      */
     public static Optional<String> currentIdentity() {
-        if (identityHolder.get() == null || identityHolder.get().isEmpty()) {
+        var identity = getCurrentIdentity();
+        if (identity == null || identity.isEmpty()) {
             return Optional.empty();
         }
-        return Optional.of(identityHolder.get());
+        return Optional.of(identity);
     }
 
     /**
@@ -57,7 +58,7 @@ public class IdentityContextHolder {
      * @param identity User's identity to set
      */
     public static void setCurrentIdentity(String identity) {
-        identityHolder.set(identity);
+        RequestContext.update(ctx -> ctx.withIdentity(identity));
     }
 
     /**
@@ -66,13 +67,11 @@ public class IdentityContextHolder {
      * @param consumer A User's identity consumer function
      */
     public static void setCurrentIdentity(Consumer<String> consumer) {
-        if (identityHolder.get() != null && !identityHolder.get().isEmpty()) {
-            consumer.accept(identityHolder.get());
-        }
+        currentIdentity().ifPresent(consumer);
     }
 
     /** Cleanup thread local. */
     public static void destroy() {
-        identityHolder.remove();
+        RequestContext.update(ctx -> ctx.withIdentity(null));
     }
 }
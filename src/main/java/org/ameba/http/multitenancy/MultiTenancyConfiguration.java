@@ -17,6 +17,8 @@ package org.ameba.http.multitenancy;
 
 import jakarta.servlet.DispatcherType;
 import org.ameba.annotation.ExcludeFromScan;
+import org.ameba.http.ContextFilter;
+import org.ameba.http.identity.IdentityConfiguration;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,6 +26,7 @@ import org.springframework.context.annotation.Configuration;
 /**
  * A MultiTenancyConfiguration is not meant to be scanned by application code, therefor it is {@link ExcludeFromScan} and not in the
  * {@literal app} package. It is responsible to setup support for multi-tenancy.
+ * The {@link ContextFilter} replaces the former chain of {@link MultiTenantSessionFilter} and {@link SLF4JMappedDiagnosticContextFilter}.
  *
  * @author Heiko Scherrer
  */
@@ -39,34 +42,22 @@ public class MultiTenancyConfiguration {
     public static String[] urlPatterns;
 
     /**
-     * Registers the MultiTenantSessionFilter filter.
+     * Registers the {@link ContextFilter} that sets tenant, request ID and MDC in one pass, and the identity if identity
+     * awareness is enabled for the same URL patterns as well.
      *
      * @return The registration bean instance
      */
-    public @Bean FilterRegistrationBean<MultiTenantSessionFilter> multiTenantSessionFilter() {
-        var registration = new FilterRegistrationBean<>(new MultiTenantSessionFilter());
-        registration.setDispatcherTypes(DispatcherType.REQUEST);
-        if (urlPatterns != null) {
-            registration.addUrlPatterns(urlPatterns);
-        }
-        registration.addInitParameter(org.ameba.Constants.PARAM_MULTI_TENANCY_ENABLED, String.valueOf(enabled));
-        registration.addInitParameter(org.ameba.Constants.PARAM_MULTI_TENANCY_THROW_IF_NOT_PRESENT, String.valueOf(throwIfNotPresent));
-        return registration;
-    }
-
-    /**
-     * Registers the SLF4JMappedDiagnosticContextFilter filter.
-     *
-     * @return The registration bean instance
-     */
-    public @Bean FilterRegistrationBean<SLF4JMappedDiagnosticContextFilter> slf4JMappedDiagnosticContextFilter() {
-        var registration = new FilterRegistrationBean<>(new SLF4JMappedDiagnosticContextFilter());
+    public @Bean FilterRegistrationBean<ContextFilter> contextFilter() {
+        var identity = IdentityConfiguration.enabled && IdentityConfiguration.resolvedByContextFilter();
+        var registration = new FilterRegistrationBean<>(new ContextFilter(identity ? IdentityConfiguration.strategy : null, null));
         registration.setDispatcherTypes(DispatcherType.REQUEST);
         if (urlPatterns != null) {
             registration.addUrlPatterns(urlPatterns);
         }
         registration.addInitParameter(org.ameba.Constants.PARAM_MULTI_TENANCY_ENABLED, String.valueOf(enabled));
         registration.addInitParameter(org.ameba.Constants.PARAM_MULTI_TENANCY_THROW_IF_NOT_PRESENT, String.valueOf(throwIfNotPresent));
+        registration.addInitParameter(org.ameba.Constants.PARAM_IDENTITY_ENABLED, String.valueOf(identity));
+        registration.addInitParameter(org.ameba.Constants.PARAM_IDENTITY_THROW_IF_NOT_PRESENT, String.valueOf(IdentityConfiguration.throwIfNotPresent));
         return registration;
     }
 }
@@ -115,7 +115,9 @@ public class DefaultMultiTenantConnectionProvider implements MultiTenantConnecti
      */
     @Override
     public Connection getConnection(String tenantIdentifier) throws SQLException {
+        var start = System.nanoTime();
         Connection connection = this.getAnyConnection();
+        TenantSchemaUtils.connectionAcquired(tenantIdentifier, System.nanoTime() - start);
         return TenantSchemaUtils.applyTenantSchema(connection, tenantIdentifier, tenantSchemaPrefix, defaultSchema);
     }
 
@@ -18,14 +18,15 @@ package org.ameba.integration.jpa;
 import jakarta.persistence.Column;
 import jakarta.persistence.MappedSuperclass;
 import jakarta.persistence.PrePersist;
+import org.ameba.IDGenerator;
 
 import java.io.Serializable;
 import java.util.Objects;
-import java.util.UUID;
 
 /**
  * An ApplicationEntity adds a secondary key column that is an application assigned key that remains the same after database migrations. An
- * unique not-null constraint is placed on the column.
+ * unique not-null constraint is placed on the column. The key is generated with the {@link IDGenerator} set with
+ * {@link #setPersistentKeyGenerator(IDGenerator)}, a time-ordered UUID ({@link PersistentKeyStrategy#UUID_V7}) by default.
  *
  * @author Heiko Scherrer
  */
@@ -33,6 +34,7 @@ import java.util.UUID;
 public class ApplicationEntity extends BaseEntity implements Serializable {
 
     public static final String C_ID = "C_PID";
+    private static volatile IDGenerator<String> persistentKeyGenerator = PersistentKeyStrategy.UUID_V7.createGenerator();
     /**
      * Technical persisted key field, independently of the underlying database, assigned by the application layer, remains the same over
      * database migrations. It is allowed to be {@literal null}, at least when it is passed for creation to the server.
@@ -67,11 +69,21 @@ public class ApplicationEntity extends BaseEntity implements Serializable {
         this.pKey = pKey;
     }
 
-    /** JPA lifecycle method sets a random UUID before insertion. */
+    /**
+     * Set the {@link IDGenerator} used to generate persistent keys of all entities, e.g. one created by a
+     * {@link PersistentKeyStrategy}.
+     *
+     * @param generator The generator
+     */
+    public static void setPersistentKeyGenerator(IDGenerator<String> generator) {
+        persistentKeyGenerator = Objects.requireNonNull(generator, "generator must not be null");
+    }
+
+    /** JPA lifecycle method sets a generated persistent key before insertion. */
     @PrePersist
     protected void onPersist() {
         if (this.pKey == null) {
-            this.pKey = UUID.randomUUID().toString();
+            this.pKey = persistentKeyGenerator.generate();
         }
         onEntityPersist();
     }
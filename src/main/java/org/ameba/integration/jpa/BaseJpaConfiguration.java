@@ -15,14 +15,20 @@
  */
 package org.ameba.integration.jpa;
 
+import org.ameba.LoggingCategories;
 import org.ameba.annotation.ExcludeFromScan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
 import org.springframework.context.annotation.Bean;
 
 /**
- * A BaseJpaConfiguration bootstraps all JPA features of the ameba module.
+ * A BaseJpaConfiguration bootstraps all JPA features of the ameba module. The {@link PersistentKeyStrategy} of
+ * {@link ApplicationEntity}s is set with the property {@code ameba.jpa.persistent-key-strategy}, defaults to
+ * {@link PersistentKeyStrategy#UUID_V7}.
  *
  * @author Heiko Scherrer
  */
@@ -31,6 +37,13 @@ import org.springframework.context.annotation.Bean;
 @AutoConfiguration
 public class BaseJpaConfiguration {
 
+    private static final Logger BOOT_LOGGER = LoggerFactory.getLogger(LoggingCategories.BOOT);
+
+    public BaseJpaConfiguration(@Value("${ameba.jpa.persistent-key-strategy:UUID_V7}") PersistentKeyStrategy persistentKeyStrategy) {
+        ApplicationEntity.setPersistentKeyGenerator(persistentKeyStrategy.createGenerator());
+        BOOT_LOGGER.info("Generating persistent keys with strategy [{}]", persistentKeyStrategy);
+    }
+
     @ConditionalOnClass(name = {
             "org.springframework.data.domain.AuditorAware",
             "org.springframework.security.core.context.SecurityContextHolder"
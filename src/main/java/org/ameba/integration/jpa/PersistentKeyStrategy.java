@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.integration.jpa;
+
+import org.ameba.IDGenerator;
+import org.ameba.JdkIDGenerator;
+import org.ameba.TimeOrderedIDGenerator;
+import org.ameba.UlidIDGenerator;
+
+import java.util.function.Supplier;
+
+/**
+ * A PersistentKeyStrategy defines how the persistent key of an {@link ApplicationEntity} is generated. Random keys spread
+ * inserts over the whole unique index of the {@code C_PID} column, time-ordered keys append to its end.
+ *
+ * @author Heiko Scherrer
+ */
+public enum PersistentKeyStrategy {
+
+    /** Random version 4 UUID, 36 characters. */
+    RANDOM_UUID(JdkIDGenerator::new),
+
+    /** Time-ordered version 7 UUID, 36 characters. */
+    UUID_V7(TimeOrderedIDGenerator::new),
+
+    /** Time-ordered ULID, 26 characters. */
+    ULID(UlidIDGenerator::new);
+
+    private final Supplier<IDGenerator<String>> factory;
+
+    PersistentKeyStrategy(Supplier<IDGenerator<String>> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Create a new generator of this strategy.
+     *
+     * @return The generator
+     */
+    public IDGenerator<String> createGenerator() {
+        return factory.get();
+    }
+}
@@ -25,11 +25,26 @@ import java.util.List;
  */
 public class BearerTokenExtractor extends DefaultTokenExtractor {
 
+    private static final String BEARER = "Bearer ";
+    private static final ExtractionResult EXTRACTABLE = new ExtractionResult();
+    private static final ExtractionResult NOT_A_JWT = new ExtractionResult("Not a valid JWT");
+
     @Inject
     public BearerTokenExtractor(IssuerWhiteList whiteList, List<TokenParser> parsers) {
         super(whiteList, parsers);
     }
 
+    /**
+     * Create an extractor that remembers verified tokens.
+     *
+     * @param whiteList The whitelist of accepted issuers
+     * @param parsers The parsers that verify the signature of a token
+     * @param tokenCache Keeps tokens already verified
+     */
+    public BearerTokenExtractor(IssuerWhiteList whiteList, List<TokenParser> parsers, VerifiedTokenCache tokenCache) {
+        super(whiteList, parsers, tokenCache);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -37,13 +52,11 @@ public class BearerTokenExtractor extends DefaultTokenExtractor {
      */
     @Override
     public ExtractionResult canExtract(String authHeader) {
-        String token = stripBearer(authHeader);
-        String[] parts = token.split("\\.");
-        return authHeader.startsWith("Bearer ") && parts.length == 3 ? new ExtractionResult() : new ExtractionResult("Not a valid JWT");
+        return isBearerJwt(authHeader) ? EXTRACTABLE : NOT_A_JWT;
     }
 
-    private String stripBearer(String authHeader) {
-        return authHeader.replace("Bearer ", "");
+    private boolean isBearerJwt(String authHeader) {
+        return authHeader != null && authHeader.startsWith(BEARER) && JwtView.isJwt(authHeader, BEARER.length());
     }
 
     /**
@@ -54,9 +67,9 @@ public class BearerTokenExtractor extends DefaultTokenExtractor {
      */
     @Override
     public ExtractionResult extract(final String authHeader) {
-        if (!canExtract(authHeader).isExtractionPossible()) {
+        if (!isBearerJwt(authHeader)) {
             throw new InvalidTokenException("Not a valid Bearer token");
         }
-        return super.extract(stripBearer(authHeader));
+        return extract(JwtView.of(authHeader, BEARER.length()));
     }
 }
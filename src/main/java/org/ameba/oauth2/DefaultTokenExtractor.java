@@ -15,18 +15,12 @@
  */
 package org.ameba.oauth2;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import io.jsonwebtoken.io.Decoders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
 
-import static java.lang.String.format;
-
 /**
  * A DefaultTokenExtractor validates the issuer of a JWT against a whitelist, parses the
  * JWT using the proper algorithm to validate the signature.
@@ -36,13 +30,31 @@ import static java.lang.String.format;
 public class DefaultTokenExtractor implements TokenExtractor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultTokenExtractor.class);
-    private final ObjectMapper om = new ObjectMapper();
+    private static final ExtractionResult EXTRACTABLE = new ExtractionResult();
+    private static final ExtractionResult NOT_A_JWT = new ExtractionResult("Not a valid JWT, expected 3 parts");
     private final IssuerWhiteList<Issuer> whiteList;
-    private final List<TokenParser> parsers;
+    private final TokenParserRegistry parsers;
+    private final VerifiedTokenCache tokenCache;
 
     public DefaultTokenExtractor(IssuerWhiteList whiteList, List<TokenParser> parsers) {
+        this(whiteList, parsers, null);
+    }
+
+    /**
+     * Create an extractor that remembers verified tokens.
+     *
+     * @param whiteList The whitelist of accepted issuers
+     * @param parsers The parsers that verify the signature of a token
+     * @param tokenCache Keeps tokens already verified, if {@literal null} each token is verified on each call
+     */
+    public DefaultTokenExtractor(IssuerWhiteList whiteList, List<TokenParser> parsers, VerifiedTokenCache tokenCache) {
         this.whiteList = whiteList;
-        this.parsers = parsers;
+        var typed = new ArrayList<TokenParser<?, ?>>(parsers.size());
+        for (TokenParser<?, ?> parser : parsers) {
+            typed.add(parser);
+        }
+        this.parsers = new TokenParserRegistry(typed);
+        this.tokenCache = tokenCache;
     }
 
     /**
@@ -50,26 +62,13 @@ public class DefaultTokenExtractor implements TokenExtractor {
      */
     @Override
     public ExtractionResult canExtract(String token) {
-        String[] parts = token.split("\\.");
-        return parts.length == 3 ? new ExtractionResult() : new ExtractionResult("Not a valid JWT, expected 3 parts");
-    }
-
-    private JsonNode parse(String token, ObjectMapper om) {
-        try {
-            return om.readValue(Decoders.BASE64URL.decode(token), JsonNode.class);
-        } catch (IOException e) {
-            LOGGER.error(e.getMessage(), e);
-            throw new InvalidTokenException("Part of token cannot be parsed");
-        }
+        return JwtView.isJwt(token, 0) ? EXTRACTABLE : NOT_A_JWT;
     }
 
-    private void ensureTokenNotExpired(JsonNode tokenPayload) {
-        long nowTime = new Date().getTime();
-        var exp = tokenPayload.get("exp").isNull() ? null : new Date(tokenPayload.get("exp").asLong() * 1000);
-        if (exp != null) {
-            var maxTime = nowTime - Issuer.DEFAULT_MAX_SKEW_SECONDS;
-            var max = new Date(maxTime);
-            if (max.after(exp)) {
+    private void ensureTokenNotExpired(JwtView.Payload tokenPayload) {
+        if (tokenPayload.exp() != null) {
+            var maxTime = System.currentTimeMillis() - Issuer.DEFAULT_MAX_SKEW_SECONDS;
+            if (maxTime > tokenPayload.exp() * 1000) {
                 throw new InvalidTokenException("Token has expired");
             }
         }
@@ -80,24 +79,40 @@ public class DefaultTokenExtractor implements TokenExtractor {
      */
     @Override
     public ExtractionResult extract(final String token) {
-        // we do not trust the signature so first parse the token and check the issuer
-        var splitToken = token.split("\\.");
-        if (splitToken.length < 2) {
-            throw new InvalidTokenException("Token is not a JWT");
+        return extract(JwtView.of(token));
+    }
+
+    /**
+     * Extract the JWT the given {@code view} points to, validate its issuer and verify its signature.
+     *
+     * @param view The view on the token
+     * @return The result
+     * @throws InvalidTokenException in case extraction is not possible
+     */
+    protected ExtractionResult extract(JwtView view) {
+        if (tokenCache != null) {
+            var cached = tokenCache.get(view.token());
+            if (cached != null) {
+                return new ExtractionResult(cached);
+            }
         }
 
-        var tokenHeader = parse(splitToken[0], om);
-        var tokenPayload = parse(splitToken[1], om);
+        // we do not trust the signature so first parse the token and check the issuer
+        var tokenHeader = view.header();
+        var tokenPayload = view.payload();
 
         ensureTokenNotExpired(tokenPayload);
 
+        if (tokenPayload.iss() == null) {
+            throw new InvalidTokenException("No iss claim defined in JWT payload");
+        }
         Issuer issuer;
-        if (tokenHeader.has("kid")) {
+        if (tokenHeader.kid() != null) {
 
-            issuer = whiteList.getIssuer(tokenPayload.get("iss").asText(), tokenHeader.get("kid").asText());
+            issuer = whiteList.getIssuer(tokenPayload.iss(), tokenHeader.kid());
         } else {
 
-            var issuers = whiteList.getIssuers(tokenPayload.get("iss").asText());
+            var issuers = whiteList.getIssuers(tokenPayload.iss());
             // Okay, the issuer seems to have multiple kids for the same issuer ID, so take the first one...
             issuer = issuers.isEmpty() ? null : issuers.getFirst();
         }
@@ -114,13 +129,12 @@ public class DefaultTokenExtractor implements TokenExtractor {
         }
 
         // Now check with Signature
-        if (tokenHeader.has("alg")) {
-            final var alg = tokenHeader.get("alg").asText();
-            var parser = parsers.stream()
-                    .filter(p -> alg.equals(p.supportAlgorithm()))
-                    .findFirst()
-                    .orElseThrow(() -> new InvalidTokenException(format("Algorithm [%s] not supported", alg)));
-            return new ExtractionResult(parser.parse(token, issuer));
+        if (tokenHeader.alg() != null) {
+            var jwt = parsers.getParser(tokenHeader.alg()).parse(view, issuer);
+            if (tokenCache != null) {
+                tokenCache.put(view.token(), jwt);
+            }
+            return new ExtractionResult(jwt);
         }
         return new ExtractionResult("No alg claim defined in JWT header");
     }
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * An ExpiringCache is a bounded, thread-safe in-memory cache where each entry expires after a time-to-live. It is used to
+ * keep the results of expensive lookups, like resolved public keys or verified tokens, off the per-request path.
+ * <p>
+ * Concurrent misses for the same key are coalesced when values are resolved with {@link #get(Object, Function)}: only one
+ * caller executes the loader and all others wait for its result. When the cache exceeds its maximum size, expired entries are
+ * removed first and then the entries closest to expiration.
+ *
+ * @author Heiko Scherrer
+ * @param <K> The type of the cache key
+ * @param <V> The type of the cached values
+ */
+public class ExpiringCache<K, V> {
+
+    private final String name;
+    private final Duration ttl;
+    private final int maxSize;
+    private final Clock clock;
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private record Entry<V>(V value, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    /**
+     * Create a cache that uses the system clock.
+     *
+     * @param name A name used to identify the cache, e.g. in metrics
+     * @param ttl The default time-to-live of an entry
+     * @param maxSize The maximum number of entries
+     */
+    public ExpiringCache(String name, Duration ttl, int maxSize) {
+        this(name, ttl, maxSize, Clock.systemUTC());
+    }
+
+    /**
+     * Create a cache with a dedicated {@code clock}.
+     *
+     * @param name A name used to identify the cache, e.g. in metrics
+     * @param ttl The default time-to-live of an entry
+     * @param maxSize The maximum number of entries
+     * @param clock The clock used to calculate expiration
+     */
+    public ExpiringCache(String name, Duration ttl, int maxSize, Clock clock) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("The ttl of a cache must be positive");
+        }
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maxSize of a cache must be at least 1");
+        }
+        this.name = name;
+        this.ttl = ttl;
+        this.maxSize = maxSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Return the value cached for the given {@code key}.
+     *
+     * @param key The key
+     * @return The value or {@literal null} if not cached or already expired
+     */
+    public V get(K key) {
+        var value = peek(key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Return the value cached for the given {@code key} or resolve it with the {@code loader}. Concurrent calls for the same
+     * key wait for the one loader invocation in flight. A {@literal null} result is not cached.
+     *
+     * @param key The key
+     * @param loader Resolves the value in case of a miss
+     * @return The cached or loaded value, may be {@literal null} if the loader returns {@literal null}
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        var value = get(key);
+        if (value != null) {
+            return value;
+        }
+        var future = new CompletableFuture<V>();
+        var inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            // Another caller may have finished loading between the miss and registering the future
+            value = peek(key);
+            if (value == null) {
+                loads.increment();
+                value = loader.apply(key);
+                if (value != null) {
+                    put(key, value);
+                }
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private V await(CompletableFuture<V> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+
+    private V peek(K key) {
+        var entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(clock.millis())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    /**
+     * Put a value into the cache that expires after the default time-to-live.
+     *
+     * @param key The key
+     * @param value The value, must not be {@literal null}
+     */
+    public void put(K key, V value) {
+        put(key, value, clock.instant().plus(ttl));
+    }
+
+    /**
+     * Put a value into the cache that expires at {@code expiresAt} but not later than the default time-to-live.
+     *
+     * @param key The key
+     * @param value The value, must not be {@literal null}
+     * @param expiresAt The point in time the entry expires
+     */
+    public void put(K key, V value, Instant expiresAt) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not cached");
+        }
+        var max = clock.millis() + ttl.toMillis();
+        entries.put(key, new Entry<>(value, Math.min(max, expiresAt.toEpochMilli())));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Replace the value of an entry after it has been resolved again in the background and restart its time-to-live.
+     *
+     * @param key The key
+     * @param value The new value
+     */
+    public void refresh(K key, V value) {
+        refreshes.increment();
+        put(key, value);
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            var now = clock.millis();
+            var candidates = new ArrayList<Map.Entry<K, Entry<V>>>(entries.size());
+            for (var e : entries.entrySet()) {
+                if (e.getValue().isExpired(now)) {
+                    remove(e.getKey(), e.getValue());
+                } else {
+                    candidates.add(e);
+                }
+            }
+            // Shrink a bit below the limit so that eviction does not run on every following put
+            var target = maxSize - Math.max(1, maxSize / 10);
+            if (candidates.size() > target) {
+                candidates.sort(Comparator.comparingLong(e -> e.getValue().expiresAt()));
+                for (int i = 0; i < candidates.size() - target; i++) {
+                    remove(candidates.get(i).getKey(), candidates.get(i).getValue());
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void remove(K key, Entry<V> entry) {
+        if (entries.remove(key, entry)) {
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Remove the entry with the given {@code key}.
+     *
+     * @param key The key
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Remove all entries whose keys match the given {@code predicate}.
+     *
+     * @param predicate Selects the keys to remove
+     */
+    public void invalidateIf(Predicate<? super K> predicate) {
+        entries.keySet().removeIf(predicate);
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Return the keys of all entries that are not expired yet.
+     *
+     * @return A snapshot of the keys
+     */
+    public List<K> keys() {
+        var now = clock.millis();
+        var result = new ArrayList<K>(entries.size());
+        entries.forEach((k, v) -> {
+            if (!v.isExpired(now)) {
+                result.add(k);
+            }
+        });
+        return result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Return the ratio of hits to all lookups.
+     *
+     * @return Between {@literal 0} and {@literal 1}, or {@literal NaN} if no lookup happened yet
+     */
+    public double getHitRatio() {
+        var h = hits.sum();
+        var total = h + misses.sum();
+        return total == 0 ? Double.NaN : (double) h / total;
+    }
+}
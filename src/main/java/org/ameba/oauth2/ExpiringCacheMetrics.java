@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * An ExpiringCacheMetrics binds the statistics of an {@link ExpiringCache} to a Micrometer {@link MeterRegistry}. All meters
+ * are tagged with the name of the cache.
+ *
+ * @author Heiko Scherrer
+ */
+public class ExpiringCacheMetrics implements MeterBinder {
+
+    private static final String PREFIX = "ameba.cache.";
+    private final ExpiringCache<?, ?> cache;
+
+    public ExpiringCacheMetrics(ExpiringCache<?, ?> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(PREFIX + "hits", cache, ExpiringCache::getHitCount)
+                .tag("cache", cache.getName())
+                .description("The number of lookups answered from the cache")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + "misses", cache, ExpiringCache::getMissCount)
+                .tag("cache", cache.getName())
+                .description("The number of lookups not answered from the cache")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + "loads", cache, ExpiringCache::getLoadCount)
+                .tag("cache", cache.getName())
+                .description("The number of values resolved from the origin")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + "refreshes", cache, ExpiringCache::getRefreshCount)
+                .tag("cache", cache.getName())
+                .description("The number of values refreshed in the background")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + "evictions", cache, ExpiringCache::getEvictionCount)
+                .tag("cache", cache.getName())
+                .description("The number of entries evicted because of the size limit or expiration")
+                .register(registry);
+        Gauge.builder(PREFIX + "size", cache, ExpiringCache::size)
+                .tag("cache", cache.getName())
+                .description("The number of entries in the cache")
+                .register(registry);
+        Gauge.builder(PREFIX + "hit.ratio", cache, ExpiringCache::getHitRatio)
+                .tag("cache", cache.getName())
+                .description("The ratio of hits to all lookups")
+                .register(registry);
+    }
+}
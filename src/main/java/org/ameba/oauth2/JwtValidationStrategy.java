@@ -24,7 +24,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * A JwtValidationStrategy may be used as Servlet Filter to extract a JWT from an
@@ -69,21 +68,15 @@ public class JwtValidationStrategy implements FilterStrategy {
     }
 
     private Jwt extractToken(String authHeader) {
-        List<ExtractionResult> result = extractors
-                .stream()
-                .map(extractor -> {
-                    ExtractionResult vr = extractor.canExtract(authHeader);
-                    return vr.isExtractionPossible() ? extractor.extract(authHeader) : vr;
-                })
-                .collect(Collectors.toList());
-
-        ExtractionResult extractionResult = result
-                .stream()
-                .filter(ExtractionResult::hasJwt)
-                .findFirst()
-                .orElseThrow(() -> new InvalidTokenException("Could not extract JWT from token"));
-
-        return extractionResult.getJwt();
+        for (var extractor : extractors) {
+            if (extractor.canExtract(authHeader).isExtractionPossible()) {
+                var result = extractor.extract(authHeader);
+                if (result.hasJwt()) {
+                    return result.getJwt();
+                }
+            }
+        }
+        throw new InvalidTokenException("Could not extract JWT from token");
     }
 
     private boolean isBearer(String authHeader) {
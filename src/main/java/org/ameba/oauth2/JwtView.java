@@ -0,0 +1,240 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+
+/**
+ * A JwtView is a read-only view on a JWT in compact serialization that is embedded in a String, like the value of an
+ * Authorization header.
+ * <p>
+ * The positions of the two separating dots are resolved once when the view is created. Header and payload are decoded
+ * lazily, directly from the underlying String with a streaming JSON parser, into small records that only hold the claims
+ * required to find the issuer and the signing algorithm. The signature is not verified, that is the responsibility of a
+ * {@link TokenParser}.
+ *
+ * @author Heiko Scherrer
+ */
+public final class JwtView {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwtView.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private final String value;
+    private final int start;
+    private final int firstDot;
+    private final int secondDot;
+    private String token;
+    private Header header;
+    private Payload payload;
+
+    /**
+     * The JOSE header claims of a JWT.
+     *
+     * @param alg The signing algorithm, may be {@literal null}
+     * @param kid The key ID, may be {@literal null}
+     */
+    public record Header(String alg, String kid) { }
+
+    /**
+     * The registered claims of the JWT payload that are evaluated before the signature is verified.
+     *
+     * @param iss The issuer, may be {@literal null}
+     * @param sub The subject, may be {@literal null}
+     * @param exp The expiration time in seconds since the epoch, may be {@literal null}
+     */
+    public record Payload(String iss, String sub, Long exp) { }
+
+    private JwtView(String value, int start, int firstDot, int secondDot) {
+        this.value = value;
+        this.start = start;
+        this.firstDot = firstDot;
+        this.secondDot = secondDot;
+    }
+
+    /**
+     * Check whether the given {@code value} contains a JWT with exactly three parts starting at {@code offset}. This does not
+     * allocate any memory.
+     *
+     * @param value The String that contains the JWT
+     * @param offset The position where the JWT starts
+     * @return {@literal true} if so
+     */
+    public static boolean isJwt(String value, int offset) {
+        if (value == null || offset >= value.length()) {
+            return false;
+        }
+        var first = value.indexOf('.', offset);
+        var second = first < 0 ? -1 : value.indexOf('.', first + 1);
+        return second > 0 && value.indexOf('.', second + 1) < 0;
+    }
+
+    /**
+     * Create a view on the JWT in {@code token}.
+     *
+     * @param token The JWT
+     * @return The view
+     * @throws InvalidTokenException if the token does not consist of three parts
+     */
+    public static JwtView of(String token) {
+        return of(token, 0);
+    }
+
+    /**
+     * Create a view on the JWT in {@code value} that starts at {@code offset}, e.g. behind an authorization scheme.
+     *
+     * @param value The String that contains the JWT
+     * @param offset The position where the JWT starts
+     * @return The view
+     * @throws InvalidTokenException if the token does not consist of three parts
+     */
+    public static JwtView of(String value, int offset) {
+        if (!isJwt(value, offset)) {
+            throw new InvalidTokenException("Token is not a JWT");
+        }
+        var first = value.indexOf('.', offset);
+        return new JwtView(value, offset, first, value.indexOf('.', first + 1));
+    }
+
+    /**
+     * Return the JWT in compact serialization.
+     *
+     * @return The token without any leading authorization scheme
+     */
+    public String token() {
+        if (token == null) {
+            token = start == 0 ? value : value.substring(start);
+        }
+        return token;
+    }
+
+    /**
+     * Return the decoded JOSE header.
+     *
+     * @return The header
+     * @throws InvalidTokenException if the header cannot be decoded
+     */
+    public Header header() {
+        if (header == null) {
+            String alg = null;
+            String kid = null;
+            try (var parser = open(start, firstDot)) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    var name = parser.currentName();
+                    parser.nextToken();
+                    switch (name) {
+                        case "alg" -> alg = parser.getValueAsString();
+                        case "kid" -> kid = parser.getValueAsString();
+                        default -> parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error(e.getMessage(), e);
+                throw new InvalidTokenException("Part of token cannot be parsed");
+            }
+            header = new Header(alg, kid);
+        }
+        return header;
+    }
+
+    /**
+     * Return the decoded payload claims.
+     *
+     * @return The payload
+     * @throws InvalidTokenException if the payload cannot be decoded
+     */
+    public Payload payload() {
+        if (payload == null) {
+            String iss = null;
+            String sub = null;
+            Long exp = null;
+            try (var parser = open(firstDot + 1, secondDot)) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    var name = parser.currentName();
+                    var value = parser.nextToken();
+                    switch (name) {
+                        case "iss" -> iss = parser.getValueAsString();
+                        case "sub" -> sub = parser.getValueAsString();
+                        case "exp" -> exp = value.isNumeric() ? parser.getLongValue() : null;
+                        default -> parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error(e.getMessage(), e);
+                throw new InvalidTokenException("Part of token cannot be parsed");
+            }
+            payload = new Payload(iss, sub, exp);
+        }
+        return payload;
+    }
+
+    private JsonParser open(int from, int to) throws IOException {
+        var parser = JSON_FACTORY.createParser(Base64.getUrlDecoder().wrap(new SegmentInputStream(value, from, to)));
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.close();
+            throw new InvalidTokenException("Part of token is not a JSON object");
+        }
+        return parser;
+    }
+
+    /**
+     * Streams the characters of a Base64URL encoded segment without copying it out of the String.
+     */
+    private static final class SegmentInputStream extends InputStream {
+
+        private final String value;
+        private final int end;
+        private int pos;
+
+        SegmentInputStream(String value, int from, int to) {
+            this.value = value;
+            this.pos = from;
+            this.end = to;
+        }
+
+        @Override
+        public int read() {
+            return pos < end ? ascii(value.charAt(pos++)) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= end) {
+                return -1;
+            }
+            var n = Math.min(len, end - pos);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) ascii(value.charAt(pos++));
+            }
+            return n;
+        }
+
+        private static int ascii(char c) {
+            // Anything beyond ASCII is not part of the Base64URL alphabet and must fail decoding instead of being truncated
+            return c < 0x80 ? c : '!';
+        }
+    }
+}
@@ -16,9 +16,24 @@
 package org.ameba.oauth2;
 
 import com.auth0.jwk.JwkProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.ameba.annotation.ExcludeFromScan;
+import org.ameba.oauth2.issuer.CachingIssuerWhiteList;
+import org.ameba.oauth2.issuer.JwksUrlRepository;
+import org.ameba.oauth2.parser.ES256TokenParser;
+import org.ameba.oauth2.parser.ES384TokenParser;
+import org.ameba.oauth2.parser.JwksKeyCache;
+import org.ameba.oauth2.parser.LocalJwkProvider;
+import org.ameba.oauth2.parser.PS256TokenParser;
 import org.ameba.oauth2.parser.RSA256TokenParser;
+import org.ameba.oauth2.parser.RSA384TokenParser;
+import org.ameba.oauth2.parser.RSA512TokenParser;
+import org.ameba.oauth2.tenant.TenantValidator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -35,6 +50,9 @@ import java.util.List;
  * </pre>
  *
  * Required bean definitions: JwkProvider
+ * <p>
+ * If the {@link JwtValidator} is a {@link TenantValidator}, all registered tenants are loaded into its directory once the
+ * context is ready, unless {@value #TENANT_PRELOAD_PROPERTY} is set to {@literal false}.
  *
  * @author Heiko Scherrer
  */
@@ -42,18 +60,118 @@ import java.util.List;
 @Configuration
 public class SpringOauth2Configuration {
 
+    /** Name of the property to turn off loading all tenants at startup, enabled by default. */
+    public static final String TENANT_PRELOAD_PROPERTY = "ameba.oauth2.tenant.preload";
+
+    @Bean
+    JwksKeyCache jwksKeyCache(JwkProvider jwkProvider) {
+        var jwksKeyCache = new JwksKeyCache(jwkProvider);
+        if (jwkProvider instanceof LocalJwkProvider localJwkProvider) {
+            localJwkProvider.addChangeListener(jwksKeyCache::invalidateAll);
+        }
+        return jwksKeyCache;
+    }
+
+    @Bean
+    RSA256TokenParser rsa256TokenParser(JwksKeyCache jwksKeyCache) {
+        return new RSA256TokenParser(jwksKeyCache);
+    }
+
+    @Bean
+    RSA384TokenParser rsa384TokenParser(JwksKeyCache jwksKeyCache) {
+        return new RSA384TokenParser(jwksKeyCache);
+    }
+
+    @Bean
+    RSA512TokenParser rsa512TokenParser(JwksKeyCache jwksKeyCache) {
+        return new RSA512TokenParser(jwksKeyCache);
+    }
+
+    @Bean
+    PS256TokenParser ps256TokenParser(JwksKeyCache jwksKeyCache) {
+        return new PS256TokenParser(jwksKeyCache);
+    }
+
+    @Bean
+    ES256TokenParser es256TokenParser(JwksKeyCache jwksKeyCache) {
+        return new ES256TokenParser(jwksKeyCache);
+    }
+
+    @Bean
+    ES384TokenParser es384TokenParser(JwksKeyCache jwksKeyCache) {
+        return new ES384TokenParser(jwksKeyCache);
+    }
+
     @Bean
-    RSA256TokenParser rsa256TokenParser(JwkProvider jwkProvider) {
-        return new RSA256TokenParser(jwkProvider);
+    VerifiedTokenCache verifiedTokenCache(JwkProvider jwkProvider) {
+        var verifiedTokenCache = new VerifiedTokenCache();
+        if (jwkProvider instanceof LocalJwkProvider localJwkProvider) {
+            localJwkProvider.addChangeListener(verifiedTokenCache::invalidateAll);
+        }
+        return verifiedTokenCache;
     }
 
     @Bean
-    BearerTokenExtractor bearerTokenExtractor(IssuerWhiteList whiteList, List<TokenParser> parsers) {
-        return new BearerTokenExtractor(whiteList, parsers);
+    BearerTokenExtractor bearerTokenExtractor(IssuerWhiteList whiteList, List<TokenParser> parsers, VerifiedTokenCache verifiedTokenCache) {
+        return new BearerTokenExtractor(whiteList, parsers, verifiedTokenCache);
+    }
+
+    @Bean
+    SmartInitializingSingleton issuerWhiteListInvalidation(ObjectProvider<IssuerWhiteList> whiteList,
+            ObjectProvider<JwksUrlRepository> jwksUrlRepository) {
+        return () -> {
+            if (whiteList.getIfUnique() instanceof CachingIssuerWhiteList<?> cachingWhiteList) {
+                jwksUrlRepository.ifUnique(cachingWhiteList::listenTo);
+            }
+        };
+    }
+
+    @Bean
+    SmartInitializingSingleton tenantDirectoryPreload(@Autowired(required = false) JwtValidator jwtValidator,
+            @Value("${" + TENANT_PRELOAD_PROPERTY + ":true}") boolean preload) {
+        return () -> {
+            if (preload && jwtValidator instanceof TenantValidator tenantValidator) {
+                tenantValidator.getDirectory().preload();
+            }
+        };
     }
 
     @Bean
     FilterStrategy filterStrategy(List<TokenExtractor> extractors, @Autowired(required = false) JwtValidator jwtValidator) {
         return new JwtValidationStrategy(extractors, jwtValidator);
     }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.binder.MeterBinder")
+    public static class Oauth2MetricsConfiguration {
+
+        @Bean
+        MeterBinder jwksKeyCacheMetrics(JwksKeyCache jwksKeyCache) {
+            return new ExpiringCacheMetrics(jwksKeyCache.getCache());
+        }
+
+        @Bean
+        MeterBinder verifiedTokenCacheMetrics(VerifiedTokenCache verifiedTokenCache) {
+            return new ExpiringCacheMetrics(verifiedTokenCache.getCache());
+        }
+
+        @Bean
+        MeterBinder issuerWhiteListMetrics(@Autowired(required = false) IssuerWhiteList whiteList) {
+            return registry -> {
+                if (whiteList instanceof CachingIssuerWhiteList<?> cachingWhiteList) {
+                    cachingWhiteList.getCaches().forEach(cache -> new ExpiringCacheMetrics(cache).bindTo(registry));
+                }
+            };
+        }
+
+        @Bean
+        MeterBinder tenantDirectoryMetrics(@Autowired(required = false) JwtValidator jwtValidator) {
+            return registry -> {
+                if (jwtValidator instanceof TenantValidator tenantValidator) {
+                    new ExpiringCacheMetrics(tenantValidator.getDirectory().getCache()).bindTo(registry);
+                    new ExpiringCacheMetrics(tenantValidator.getDirectory().getUnknownTenantsCache()).bindTo(registry);
+                }
+            };
+        }
+    }
 }
@@ -39,4 +39,16 @@ public interface TokenParser<T extends Issuer, U extends Jwt> {
      * @return The parsed JWT instance
      */
     U parse(String token, T issuer);
+
+    /**
+     * Parse the JWT the given {@code view} points to. Implementations may override this to use the already decoded parts of
+     * the view.
+     *
+     * @param view The view on the token to parse
+     * @param issuer The origin token issuer that provides the signing key
+     * @return The parsed JWT instance
+     */
+    default U parse(JwtView view, T issuer) {
+        return parse(view.token(), issuer);
+    }
 }
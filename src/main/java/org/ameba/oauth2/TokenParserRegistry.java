@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * A TokenParserRegistry indexes {@link TokenParser}s by the signing algorithm they support, so that the parser for a token is
+ * found with one lookup. If more than one parser supports the same algorithm, the first one in the list wins.
+ *
+ * @author Heiko Scherrer
+ */
+public class TokenParserRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenParserRegistry.class);
+    private final Map<String, TokenParser<?, ?>> parsers;
+
+    public TokenParserRegistry(List<? extends TokenParser<?, ?>> parsers) {
+        var index = new HashMap<String, TokenParser<?, ?>>(parsers.size() * 2);
+        for (var parser : parsers) {
+            var existing = index.putIfAbsent(parser.supportAlgorithm(), parser);
+            if (existing != null) {
+                LOGGER.warn("TokenParser [{}] is ignored because [{}] already supports algorithm [{}]",
+                        parser.getClass().getName(), existing.getClass().getName(), parser.supportAlgorithm());
+            }
+        }
+        this.parsers = Map.copyOf(index);
+    }
+
+    /**
+     * Return the parser that supports the signing algorithm {@code alg}.
+     *
+     * Parsers are registered regardless of the type of {@link Issuer} they expect, so the returned parser is typed with the
+     * issuer type of the caller.
+     *
+     * @param alg The value of the {@code alg} header
+     * @param <T> The type of issuer the parser is called with
+     * @return The parser, never {@literal null}
+     * @throws InvalidTokenException if no parser supports the algorithm
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Issuer> TokenParser<T, ?> getParser(String alg) {
+        var parser = alg == null ? null : parsers.get(alg);
+        if (parser == null) {
+            throw new InvalidTokenException(format("Algorithm [%s] not supported", alg));
+        }
+        return (TokenParser<T, ?>) parser;
+    }
+
+    /**
+     * Return all supported signing algorithms.
+     *
+     * @return The algorithms
+     */
+    public Set<String> getAlgorithms() {
+        return parsers.keySet();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * A VerifiedTokenCache keeps JWTs in memory that have already been parsed and whose signature has been verified, so that
+ * repeated requests with the same token skip decoding, issuer lookup and signature verification.
+ * <p>
+ * Tokens are not cached by their plain value but by the SHA-256 digest of it. A cached token expires at its {@code exp} claim
+ * minus a safety margin but never later than the configured maximum time-to-live. Tokens without an {@code exp} claim are
+ * cached for the maximum time-to-live, tokens that are about to expire are not cached at all.
+ *
+ * @author Heiko Scherrer
+ */
+public class VerifiedTokenCache {
+
+    /** Default maximum time-to-live of a cached token. */
+    public static final Duration DEFAULT_MAX_TTL = Duration.ofMinutes(5);
+    /** Default maximum number of cached tokens. */
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+    /** Default safety margin a cached token expires before its {@code exp} claim. */
+    public static final Duration DEFAULT_EXPIRY_SKEW = Duration.ofSeconds(5);
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private final ExpiringCache<String, Jwt<?, ?>> tokens;
+    private final Duration expirySkew;
+    private final Clock clock;
+
+    /**
+     * Create a cache with default settings.
+     */
+    public VerifiedTokenCache() {
+        this(DEFAULT_MAX_TTL, DEFAULT_MAX_SIZE, DEFAULT_EXPIRY_SKEW);
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param maxTtl The maximum time-to-live of a cached token
+     * @param maxSize The maximum number of cached tokens
+     * @param expirySkew The safety margin a cached token expires before its {@code exp} claim
+     */
+    public VerifiedTokenCache(Duration maxTtl, int maxSize, Duration expirySkew) {
+        this(maxTtl, maxSize, expirySkew, Clock.systemUTC());
+    }
+
+    VerifiedTokenCache(Duration maxTtl, int maxSize, Duration expirySkew, Clock clock) {
+        this.tokens = new ExpiringCache<>("verified-tokens", maxTtl, maxSize, clock);
+        this.expirySkew = expirySkew;
+        this.clock = clock;
+    }
+
+    /**
+     * Return the verified JWT for the given {@code token}.
+     *
+     * @param token The raw token
+     * @return The JWT or {@literal null} if the token has not been verified before or the cached entry has expired
+     */
+    public Jwt<?, ?> get(String token) {
+        return tokens.get(digest(token));
+    }
+
+    /**
+     * Put a verified JWT into the cache.
+     *
+     * @param token The raw token
+     * @param jwt The JWT parsed from the token with a verified signature
+     */
+    public void put(String token, Jwt<?, ?> jwt) {
+        if (jwt == null) {
+            return;
+        }
+        if (jwt.getPayload() instanceof Claims claims && claims.getExpiration() != null) {
+            var expiresAt = claims.getExpiration().toInstant().minus(expirySkew);
+            if (expiresAt.isAfter(clock.instant())) {
+                tokens.put(digest(token), jwt, expiresAt);
+            }
+        } else {
+            tokens.put(digest(token), jwt);
+        }
+    }
+
+    /**
+     * Remove all cached tokens, e.g. after the trusted issuers have changed.
+     */
+    public void invalidateAll() {
+        tokens.invalidateAll();
+    }
+
+    /**
+     * Return the underlying cache, e.g. to bind its statistics to a metrics registry.
+     *
+     * @return The cache instance
+     */
+    public ExpiringCache<?, ?> getCache() {
+        return tokens;
+    }
+
+    private static String digest(String token) {
+        try {
+            return ENCODER.encodeToString(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+}
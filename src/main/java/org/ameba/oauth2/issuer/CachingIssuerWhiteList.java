@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.issuer;
+
+import org.ameba.oauth2.ExpiringCache;
+import org.ameba.oauth2.Issuer;
+import org.ameba.oauth2.IssuerWhiteList;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A CachingIssuerWhiteList keeps the issuers resolved by another {@link IssuerWhiteList} in memory, so that validating a token
+ * does not cost a database query or a call to a JWKS endpoint each time.
+ * <p>
+ * Issuers are cached by issuer ID and by the combination of issuer ID and key ID for a configurable time-to-live. Concurrent
+ * lookups of the same issuer that are not cached yet are coalesced into one call to the delegate. Rejected issuers are not
+ * cached. Call {@link #invalidate(String)} whenever the issuers of an issuer ID change, or let a {@link JwksUrlRepository}
+ * invalidate the cached entries of an issuer whenever it stores a new key ID with {@link #listenTo(JwksUrlRepository)}. The
+ * {@code SpringOauth2Configuration} does so if both are defined as beans.
+ *
+ * @author Heiko Scherrer
+ * @param <T> The type of issuer
+ */
+public class CachingIssuerWhiteList<T extends Issuer> implements IssuerWhiteList<T> {
+
+    /** Default time-to-live of a cached issuer. */
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+    /** Default maximum number of cached issuers and issuer/key ID combinations. */
+    public static final int DEFAULT_MAX_SIZE = 1_000;
+
+    private final IssuerWhiteList<T> delegate;
+    private final ExpiringCache<String, List<T>> issuers;
+    private final ExpiringCache<IssuerKey, T> issuersByKid;
+
+    private final Consumer<Issuer> newIssuerListener = issuer -> invalidate(issuer.getIssuerId());
+
+    private record IssuerKey(String issuerId, String kid) { }
+
+    public CachingIssuerWhiteList(IssuerWhiteList<T> delegate) {
+        this(delegate, DEFAULT_TTL, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create a whitelist.
+     *
+     * @param delegate The whitelist to resolve issuers from
+     * @param ttl The time-to-live of a cached issuer
+     * @param maxSize The maximum number of cached entries
+     */
+    public CachingIssuerWhiteList(IssuerWhiteList<T> delegate, Duration ttl, int maxSize) {
+        this.delegate = delegate;
+        this.issuers = new ExpiringCache<>("issuers", ttl, maxSize);
+        this.issuersByKid = new ExpiringCache<>("issuers-by-kid", ttl, maxSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<T> getIssuers(String issuerId) {
+        var result = issuers.get(issuerId, id -> {
+            var resolved = delegate.getIssuers(id);
+            return resolved == null ? null : List.copyOf(resolved);
+        });
+        return result == null ? List.of() : result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T getIssuer(String issuerId, String kid) {
+        return issuersByKid.get(new IssuerKey(issuerId, kid), key -> delegate.getIssuer(key.issuerId(), key.kid()));
+    }
+
+    /**
+     * Invalidate the cached entries of an issuer whenever the {@code repository} stores a new key ID of it. Registering the
+     * same whitelist more than once at a repository has no effect.
+     *
+     * @param repository The repository to listen to
+     * @return This instance
+     */
+    public CachingIssuerWhiteList<T> listenTo(JwksUrlRepository repository) {
+        repository.addNewIssuerListener(newIssuerListener);
+        return this;
+    }
+
+    /**
+     * Remove all cached entries of the issuer with the given {@code issuerId}.
+     *
+     * @param issuerId The issuer ID
+     */
+    public void invalidate(String issuerId) {
+        issuers.invalidate(issuerId);
+        issuersByKid.invalidateIf(key -> key.issuerId().equals(issuerId));
+    }
+
+    /**
+     * Remove all cached entries.
+     */
+    public void invalidateAll() {
+        issuers.invalidateAll();
+        issuersByKid.invalidateAll();
+    }
+
+    /**
+     * Return the underlying caches, e.g. to bind their statistics to a metrics registry.
+     *
+     * @return The cache of issuers by issuer ID and the cache of issuers by issuer ID and key ID
+     */
+    public List<ExpiringCache<?, ?>> getCaches() {
+        return List.of(issuers, issuersByKid);
+    }
+}
@@ -15,31 +15,119 @@
  */package org.ameba.oauth2.issuer;
 
 import com.auth0.jwk.Jwk;
+import com.auth0.jwk.NetworkException;
 import com.auth0.jwk.SigningKeyNotFoundException;
 import com.auth0.jwk.UrlJwkProvider;
 import org.ameba.exception.TechnicalRuntimeException;
+import org.ameba.oauth2.ExpiringCache;
 import org.ameba.oauth2.Issuer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URL;
+import java.time.Duration;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
- * A JwksUrlRepository.
+ * A JwksUrlRepository resolves issuers from the database and accepts new key IDs of a known issuer if the JWKS endpoint of
+ * the issuer provides a key with this ID.
+ * <p>
+ * Concurrent lookups of the same new key ID are coalesced, so that the JWKS endpoint is called once and exactly one new
+ * issuer entry is stored, all other callers wait for the same result. New key IDs are checked against the key IDs of the JWKS
+ * fetched last. The JWKS endpoint of an issuer is fetched again at most once within the {@code minFetchInterval}, to protect
+ * the endpoint against floods of forged key IDs. Because each fetch loads all keys, a flood of forged key IDs cannot hold back
+ * a key the issuer has rotated in: it is accepted at the latest with the first lookup after the next fetch. Key IDs the JWKS
+ * endpoint does not know are remembered per key ID and not looked up again before an exponentially growing backoff has
+ * elapsed.
  *
  * @author Heiko Scherrer
  */
 public class JwksUrlRepository implements IssuerRepository {
 
+    /** Default backoff after a key ID has not been found at the JWKS endpoint for the first time. */
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofSeconds(30);
+    /** Default maximum backoff for a key ID that is repeatedly not found at the JWKS endpoint. */
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofMinutes(30);
+    /** Default minimum interval between two fetches of the JWKS of the same issuer. */
+    public static final Duration DEFAULT_MIN_FETCH_INTERVAL = Duration.ofSeconds(5);
+
     private static final Logger LOGGER = LoggerFactory.getLogger(JwksUrlRepository.class);
     private final JpaIssuerRepository jpaIssuerRepository;
+    private final CopyOnWriteArrayList<Consumer<? super Issuer>> newIssuerListeners = new CopyOnWriteArrayList<>();
+    private final Function<URL, UrlJwkProvider> jwkProviderFactory;
+    private final ConcurrentMap<String, JwksState> jwks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<KidKey, CompletableFuture<IssuerEO>> resolving = new ConcurrentHashMap<>();
+    private final ExpiringCache<KidKey, UnknownKid> unknownKids;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long minFetchIntervalMillis;
+
+    private record KidKey(String issuerId, String kid) { }
+
+    private record UnknownKid(int attempts, long retryAt) { }
+
+    /**
+     * The key IDs of the JWKS of one issuer, as fetched last.
+     */
+    private static final class JwksState {
+
+        private final UrlJwkProvider provider;
+        private volatile Set<String> kids = Set.of();
+        private volatile long fetchedAt;
+        /** Incremented on each fetch, to detect fetches done concurrently. */
+        private volatile int fetches;
+
+        JwksState(UrlJwkProvider provider) {
+            this.provider = provider;
+        }
+    }
 
     public JwksUrlRepository(JpaIssuerRepository jpaIssuerRepository) {
+        this(jpaIssuerRepository, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF, DEFAULT_MIN_FETCH_INTERVAL);
+    }
+
+    /**
+     * Create a repository.
+     *
+     * @param jpaIssuerRepository The repository of stored issuers
+     * @param initialBackoff The backoff after a key ID has not been found at the JWKS endpoint for the first time
+     * @param maxBackoff The maximum backoff for a key ID that is repeatedly not found
+     * @param minFetchInterval The minimum interval between two fetches of the JWKS of the same issuer
+     */
+    public JwksUrlRepository(JpaIssuerRepository jpaIssuerRepository, Duration initialBackoff, Duration maxBackoff, Duration minFetchInterval) {
+        this(jpaIssuerRepository, initialBackoff, maxBackoff, minFetchInterval, url -> new UrlJwkProvider(url, 60000, 60000));
+    }
+
+    JwksUrlRepository(JpaIssuerRepository jpaIssuerRepository, Duration initialBackoff, Duration maxBackoff, Duration minFetchInterval,
+            Function<URL, UrlJwkProvider> jwkProviderFactory) {
         this.jpaIssuerRepository = jpaIssuerRepository;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        this.minFetchIntervalMillis = minFetchInterval.toMillis();
+        this.jwkProviderFactory = jwkProviderFactory;
+        this.unknownKids = new ExpiringCache<>("unknown-kids", maxBackoff.multipliedBy(2), 10_000);
+    }
+
+    /**
+     * Register a {@code listener} that is notified whenever a new issuer entry has been saved because of a new key ID, e.g.
+     * to invalidate a {@link CachingIssuerWhiteList}. A listener that is already registered is not added again.
+     *
+     * @param listener Called with the saved issuer
+     */
+    public void addNewIssuerListener(Consumer<? super Issuer> listener) {
+        newIssuerListeners.addIfAbsent(listener);
     }
 
     /**
@@ -74,34 +162,108 @@ public class JwksUrlRepository implements IssuerRepository {
             throw new IllegalArgumentException("Arguments cannot be null");
         }
         var issuers = jpaIssuerRepository.findByIssUrl(issUrl);
-        if (!issuers.isEmpty()) {
-            Jwk jwk;
+        if (issuers.isEmpty()) {
+            LOGGER.warn("Token issuer is not accepted");
+            return Optional.empty();
+        }
+        for (var issuer : issuers) {
+            if (kid.equals(issuer.getKID())) {
+                LOGGER.trace("Resolved Issuer with KID [{}]", issuer);
+                return Optional.of(issuer);
+            }
+        }
+
+        // New kid, only one caller resolves it and all others wait for the result
+        var key = new KidKey(issUrl.toString(), kid);
+        var future = new CompletableFuture<IssuerEO>();
+        var inFlight = resolving.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return Optional.ofNullable(await(inFlight));
+        }
+        try {
+            var result = resolveNewKid(key, issuers.get(0));
+            future.complete(result);
+            return Optional.ofNullable(result);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            resolving.remove(key, future);
+        }
+    }
+
+    private IssuerEO resolveNewKid(KidKey key, IssuerEO template) {
+        var now = System.currentTimeMillis();
+        var unknown = unknownKids.get(key);
+        if (unknown != null && now < unknown.retryAt()) {
+            LOGGER.debug("KID [{}] of issuer [{}] is not known, lookups are suspended", key.kid(), key.issuerId());
+            return null;
+        }
+        var state = jwks.computeIfAbsent(template.getJWKURL().toString(), u -> new JwksState(jwkProviderFactory.apply(template.getJWKURL())));
+        var seen = state.fetches;
+        var fresh = false;
+        if (!state.kids.contains(key.kid())) {
+            fresh = fetch(state, seen, now);
+        }
+        if (!state.kids.contains(key.kid())) {
+            if (!fresh) {
+                LOGGER.debug("KID [{}] is not in the JWKS of issuer [{}] fetched last, the next fetch is rate limited", key.kid(), key.issuerId());
+                return null;
+            }
+            var attempts = unknown == null ? 1 : unknown.attempts() + 1;
+            var backoff = Math.min(initialBackoffMillis << Math.min(attempts - 1, 20), maxBackoffMillis);
+            unknownKids.put(key, new UnknownKid(attempts, now + backoff));
+            LOGGER.warn("KID [{}] is not known by the JWKS endpoint of issuer [{}], next lookup in [{}] ms", key.kid(), key.issuerId(), backoff);
+            return null;
+        }
+
+        // Another instance may have stored the kid in the meantime
+        return jpaIssuerRepository.findByIssUrlAndKid(template.getIssUrl(), key.kid())
+                .orElseGet(() -> saveNewIssuer(key.kid(), template));
+    }
+
+    /**
+     * Fetch the JWKS of an issuer, unless it has been fetched within the minimum fetch interval.
+     *
+     * @param seen The number of fetches the caller has seen before it looked up the key IDs
+     * @return {@literal true} if the key IDs have been fetched by this or a concurrent call
+     */
+    private boolean fetch(JwksState state, int seen, long now) {
+        synchronized (state) {
+            if (state.fetches != seen) {
+                // Fetched concurrently
+                return true;
+            }
+            if (seen > 0 && now - state.fetchedAt < minFetchIntervalMillis) {
+                return false;
+            }
             try {
-                IssuerEO result = null;
-                jwk = new UrlJwkProvider(issuers.get(0).getJWKURL(), 60000, 60000).get(kid);
-                for (var issuer : issuers) {
-                    if (issuer.getKID().equals(jwk.getId())) {
-                        result = issuer;
-                        LOGGER.trace("Resolved Issuer with KID [{}]", result);
-                        break;
-                    }
-                }
-                if (result == null) {
-
-                    // New Kids, save it!
-                    result = saveNewIssuer(kid, issuers.get(0));
-                }
-                return Optional.of(result);
-            } catch (SigningKeyNotFoundException sknfe) {
-
-                // Kid has been removed - rolling kid
-                return Optional.of(saveNewIssuer(kid, issuers.get(0)));
-            } catch (Exception e) {
+                state.kids = state.provider.getAll().stream()
+                        .map(Jwk::getId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toUnmodifiableSet());
+            } catch (NetworkException e) {
+                // Keep the key IDs fetched last and do not back off any key ID because of an unavailable endpoint
                 throw new TechnicalRuntimeException(e.getMessage(), e);
+            } catch (SigningKeyNotFoundException e) {
+                state.kids = Set.of();
+            } finally {
+                state.fetchedAt = System.currentTimeMillis();
+                state.fetches++;
+            }
+            return true;
+        }
+    }
+
+    private static IssuerEO await(CompletableFuture<IssuerEO> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
             }
+            throw e;
         }
-        LOGGER.warn("Token issuer is not accepted");
-        return Optional.empty();
     }
 
     private IssuerEO saveNewIssuer(String kid, IssuerEO issuer) {
@@ -111,6 +273,8 @@ public class JwksUrlRepository implements IssuerRepository {
         newIssuer.setJWKURL(issuer.getJWKURL());
         newIssuer.setSkwSeconds(issuer.getSkewSeconds());
         LOGGER.debug("Saving new Issuer entry with new KID: [{}]", newIssuer);
-        return jpaIssuerRepository.save(newIssuer);
+        var saved = jpaIssuerRepository.save(newIssuer);
+        newIssuerListeners.forEach(l -> l.accept(saved));
+        return saved;
     }
 }
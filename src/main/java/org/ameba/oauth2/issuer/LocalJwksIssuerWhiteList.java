@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.issuer;
+
+import org.ameba.oauth2.InvalidTokenException;
+import org.ameba.oauth2.Issuer;
+import org.ameba.oauth2.IssuerWhiteList;
+import org.ameba.oauth2.parser.LocalJwkProvider;
+import org.springframework.boot.context.properties.source.InvalidConfigurationPropertyValueException;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.util.List;
+
+/**
+ * A LocalJwksIssuerWhiteList accepts tokens of one issuer that are signed with any key of a local JWKS provided by a
+ * {@link LocalJwkProvider}. It does not depend on any JWKS endpoint, so the same {@link LocalJwkProvider} must be used to
+ * resolve the public keys.
+ *
+ * @author Heiko Scherrer
+ */
+public class LocalJwksIssuerWhiteList implements IssuerWhiteList<Issuer> {
+
+    private final String issuerId;
+    private final int skewSeconds;
+    private final URL baseURL;
+    private final LocalJwkProvider jwkProvider;
+
+    public LocalJwksIssuerWhiteList(String issuerId, int skewSeconds, String baseURL, LocalJwkProvider jwkProvider) {
+        this.issuerId = issuerId;
+        this.skewSeconds = skewSeconds;
+        this.jwkProvider = jwkProvider;
+        try {
+            this.baseURL = URI.create(baseURL).toURL();
+        } catch (MalformedURLException | IllegalArgumentException e) {
+            throw new InvalidConfigurationPropertyValueException("baseURL", baseURL, "BaseURL is not a proper URL");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Returns one issuer per key of the JWKS.
+     */
+    @Override
+    public List<Issuer> getIssuers(String issuerId) {
+        if (!this.issuerId.equals(issuerId)) {
+            throw new InvalidTokenException("Token issuer not accepted");
+        }
+        return jwkProvider.getKeyIds().stream().map(this::toIssuer).toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Issuer getIssuer(String issuerId, String kid) {
+        if (!this.issuerId.equals(issuerId)) {
+            throw new InvalidTokenException("Token issuer not accepted");
+        }
+        if (kid == null || !jwkProvider.getKeyIds().contains(kid)) {
+            throw new InvalidTokenException("Token kid not accepted");
+        }
+        return toIssuer(kid);
+    }
+
+    private Issuer toIssuer(String kid) {
+        return new ConfiguredIssuer(issuerId, skewSeconds, baseURL, null, null, kid);
+    }
+}
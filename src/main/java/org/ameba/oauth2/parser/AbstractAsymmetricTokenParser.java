@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.parser;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import org.ameba.oauth2.Asymmetric;
+import org.ameba.oauth2.ExpiringCache;
+import org.ameba.oauth2.InvalidTokenException;
+import org.ameba.oauth2.TokenParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.PublicKey;
+import java.time.Duration;
+
+/**
+ * An AbstractAsymmetricTokenParser verifies the signature of a JWT with the public key of an {@link Asymmetric} issuer. Public
+ * keys are resolved through a {@link JwksKeyCache}. Subclasses only define the signing algorithm they support.
+ * <p>
+ * A configured {@link JwtParser} is thread-safe, so one instance is kept per issuer, key ID and allowed clock skew and reused
+ * for all tokens as long as the public key of the issuer does not change.
+ * <p>
+ * A parser that has created its own {@link JwksKeyCache} owns it and must be {@link #close() closed} to stop the background
+ * refresh of the cache. A cache passed in from outside is shared and not closed by the parser.
+ *
+ * @author Heiko Scherrer
+ */
+public abstract class AbstractAsymmetricTokenParser implements TokenParser<Asymmetric, Jws<Claims>>, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractAsymmetricTokenParser.class);
+    private final String algorithm;
+    private final JwksKeyCache keyCache;
+    private final boolean ownsKeyCache;
+    private final ExpiringCache<VerifierKey, Verifier> verifiers = new ExpiringCache<>("jwt-verifiers", Duration.ofHours(1), 1_000);
+
+    private record VerifierKey(String issuerId, String kid, long skewSeconds) { }
+
+    private record Verifier(PublicKey publicKey, JwtParser parser) { }
+
+    /**
+     * Create a parser that shares the {@code keyCache}.
+     *
+     * @param algorithm The supported signing algorithm, one of {@code Jwts.SIG}
+     * @param keyCache The cache to resolve public keys from
+     */
+    protected AbstractAsymmetricTokenParser(SignatureAlgorithm algorithm, JwksKeyCache keyCache) {
+        this(algorithm, keyCache, false);
+    }
+
+    /**
+     * Create a parser.
+     *
+     * @param algorithm The supported signing algorithm
+     * @param keyCache The cache to resolve public keys from
+     * @param ownsKeyCache If {@literal true} the {@code keyCache} is closed together with this parser
+     */
+    protected AbstractAsymmetricTokenParser(SignatureAlgorithm algorithm, JwksKeyCache keyCache, boolean ownsKeyCache) {
+        this.algorithm = algorithm.getId();
+        this.keyCache = keyCache;
+        this.ownsKeyCache = ownsKeyCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String supportAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Jws<Claims> parse(String token, Asymmetric issuer) {
+        if (issuer == null) {
+            throw new IllegalArgumentException("Expected asymmetric issuer is null");
+        }
+        if (issuer.getKID() == null || "".equals(issuer.getKID())) {
+            throw new IllegalArgumentException("JWK kid is null or empty. Configure a kid");
+        }
+        try {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Checking issuer with KID [{}]", issuer.getKID());
+            }
+            return getParser(issuer).parseSignedClaims(token);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+            throw new InvalidTokenException(e.getMessage());
+        }
+    }
+
+    JwtParser getParser(Asymmetric issuer) {
+        var publicKey = keyCache.getPublicKey(issuer);
+        var key = new VerifierKey(issuer.getIssuerId(), issuer.getKID(), issuer.getSkewSeconds());
+        var verifier = verifiers.get(key);
+        if (verifier == null || verifier.publicKey() != publicKey) {
+            // Parsers are cheap enough to be built twice in a race, so no need to coalesce here
+            verifier = new Verifier(publicKey, Jwts.parser()
+                    .clockSkewSeconds(issuer.getSkewSeconds())
+                    .verifyWith(publicKey)
+                    .build());
+            verifiers.put(key, verifier);
+        }
+        return verifier.parser();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Close the {@link JwksKeyCache} if it has been created by this parser.
+     */
+    @Override
+    public void close() {
+        if (ownsKeyCache) {
+            keyCache.close();
+        }
+    }
+}
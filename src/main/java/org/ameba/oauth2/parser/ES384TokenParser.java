@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.parser;
+
+import io.jsonwebtoken.Jwts;
+
+/**
+ * A ES384TokenParser uses an EC Public Key on the P-384 curve to verify ECDSA signatures using SHA-384. Public keys are
+ * resolved through a {@link JwksKeyCache}.
+ *
+ * @author Heiko Scherrer
+ */
+public class ES384TokenParser extends AbstractAsymmetricTokenParser {
+
+    public ES384TokenParser(JwksKeyCache keyCache) {
+        super(Jwts.SIG.ES384, keyCache);
+    }
+}
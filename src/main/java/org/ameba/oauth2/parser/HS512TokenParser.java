@@ -16,14 +16,17 @@
 package org.ameba.oauth2.parser;
 
 import io.jsonwebtoken.Jwt;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import org.ameba.oauth2.ExpiringCache;
 import org.ameba.oauth2.InvalidTokenException;
 import org.ameba.oauth2.Symmetric;
 import org.ameba.oauth2.TokenParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+
 /**
  * A HS256TokenParser uses a symmetric SHA-512 signing key to verify the signature.
  *
@@ -32,13 +35,16 @@ import org.slf4j.LoggerFactory;
 public class HS512TokenParser implements TokenParser<Symmetric, Jwt> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HS512TokenParser.class);
+    private final ExpiringCache<ParserKey, JwtParser> parsers = new ExpiringCache<>("hs512-parsers", Duration.ofHours(1), 1_000);
+
+    private record ParserKey(String issuerId, String signingKey, long skewSeconds) { }
 
     /**
      * {@inheritDoc}
      */
     @Override
     public String supportAlgorithm() {
-        return SignatureAlgorithm.HS512.toString();
+        return Jwts.SIG.HS512.getId();
     }
 
     /**
@@ -53,16 +59,20 @@ public class HS512TokenParser implements TokenParser<Symmetric, Jwt> {
             throw new IllegalArgumentException("Symmetric signing key is null or empty. Configure a signing key");
         }
 
-        Jwt jwt;
         try {
-            jwt = Jwts.parser()
-                    .clockSkewSeconds(issuer.getSkewSeconds())
-                    .setSigningKey(issuer.getSigningKey())
-                    .build().parseClaimsJws(token);
-            return jwt;
+            return getParser(issuer).parseClaimsJws(token);
         } catch (Exception e) {
             LOGGER.error(e.getMessage(), e);
             throw new InvalidTokenException(e.getMessage());
         }
     }
+
+    JwtParser getParser(Symmetric issuer) {
+        // A configured parser is thread-safe and reused as long as the signing key of the issuer does not change
+        return parsers.get(new ParserKey(issuer.getIssuerId(), issuer.getSigningKey(), issuer.getSkewSeconds()),
+                key -> Jwts.parser()
+                        .clockSkewSeconds(key.skewSeconds())
+                        .setSigningKey(key.signingKey())
+                        .build());
+    }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.parser;
+
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.auth0.jwk.UrlJwkProvider;
+import org.ameba.exception.TechnicalRuntimeException;
+import org.ameba.oauth2.Asymmetric;
+import org.ameba.oauth2.ExpiringCache;
+import org.ameba.oauth2.InvalidTokenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * A JwksKeyCache resolves the {@link PublicKey} of an {@link Asymmetric} issuer by its JWK key ID and keeps it in memory, so
+ * that the JWKS endpoint is not called for each token.
+ * <p>
+ * Keys are cached per JWKS source (the JWK URL of the issuer) and key ID, bounded in size and time-to-live. Cached keys are
+ * refreshed in the background before they expire. A key ID that the JWKS source does not know causes a refetch only once
+ * within the {@code minRefetchInterval}, all other lookups of the same unknown key ID within that interval are rejected
+ * without calling the source. The rate limit applies per source and key ID, so that a forged key ID does not block a newly
+ * rotated key of the same source.
+ * <p>
+ * The background refresh runs in a daemon thread owned by the cache, {@link #close()} the cache when it is not used anymore.
+ *
+ * @author Heiko Scherrer
+ */
+public class JwksKeyCache implements AutoCloseable {
+
+    /** Default time-to-live of a cached key. */
+    public static final Duration DEFAULT_TTL = Duration.ofHours(1);
+    /** Default maximum number of cached keys. */
+    public static final int DEFAULT_MAX_SIZE = 256;
+    /** Default interval to refresh cached keys in the background. */
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(15);
+    /** Default minimum interval between two lookups of the same unknown key ID at the same source. */
+    public static final Duration DEFAULT_MIN_REFETCH_INTERVAL = Duration.ofSeconds(30);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwksKeyCache.class);
+    private final JwkProvider jwkProvider;
+    private final ExpiringCache<KeyId, PublicKey> keys;
+    private final ConcurrentMap<String, JwkProvider> providers = new ConcurrentHashMap<>();
+    private final ExpiringCache<KeyId, Boolean> unknownKids;
+    private final ScheduledExecutorService scheduler;
+
+    private record KeyId(String source, String kid) { }
+
+    /**
+     * Create a cache with default settings that resolves keys from the JWK URL of each issuer.
+     */
+    public JwksKeyCache() {
+        this(null);
+    }
+
+    /**
+     * Create a cache with default settings.
+     *
+     * @param jwkProvider The provider used to resolve all keys, if {@literal null} keys are resolved from the JWK URL of each issuer
+     */
+    public JwksKeyCache(JwkProvider jwkProvider) {
+        this(jwkProvider, DEFAULT_TTL, DEFAULT_MAX_SIZE, DEFAULT_REFRESH_INTERVAL, DEFAULT_MIN_REFETCH_INTERVAL);
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param jwkProvider The provider used to resolve all keys, if {@literal null} keys are resolved from the JWK URL of each issuer
+     * @param ttl The time-to-live of a cached key
+     * @param maxSize The maximum number of cached keys
+     * @param refreshInterval The interval to refresh cached keys, {@literal null} or zero to disable background refresh
+     * @param minRefetchInterval The minimum interval between two lookups of the same unknown key ID at the same source,
+     * {@literal null} or zero to disable rate limiting
+     */
+    public JwksKeyCache(JwkProvider jwkProvider, Duration ttl, int maxSize, Duration refreshInterval, Duration minRefetchInterval) {
+        this.jwkProvider = jwkProvider;
+        this.keys = new ExpiringCache<>("jwks", ttl, maxSize);
+        this.unknownKids = minRefetchInterval == null || minRefetchInterval.isZero() || minRefetchInterval.isNegative()
+                ? null
+                : new ExpiringCache<>("jwks-unknown-kids", minRefetchInterval, maxSize);
+        if (refreshInterval != null && !refreshInterval.isZero() && !refreshInterval.isNegative()) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                var thread = new Thread(r, "ameba-jwks-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.scheduler.scheduleWithFixedDelay(this::refreshAll, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Resolve the public key of the given {@code issuer}.
+     *
+     * @param issuer The issuer with the key ID of the token
+     * @return The public key, never {@literal null}
+     * @throws InvalidTokenException if the key ID is not known by the JWKS source
+     */
+    public PublicKey getPublicKey(Asymmetric issuer) {
+        var source = issuer.getJWKURL() == null ? issuer.getIssuerId() : issuer.getJWKURL().toString();
+        if (jwkProvider == null && issuer.getJWKURL() != null) {
+            providers.computeIfAbsent(source, s -> new UrlJwkProvider(issuer.getJWKURL(), 60000, 60000));
+        }
+        return keys.get(new KeyId(source, issuer.getKID()), this::loadChecked);
+    }
+
+    private PublicKey loadChecked(KeyId keyId) {
+        if (unknownKids != null && unknownKids.get(keyId) != null) {
+            throw new InvalidTokenException(format("Key ID [%s] is not known and refetching keys is currently rate limited", keyId.kid()));
+        }
+        try {
+            return load(keyId);
+        } catch (SigningKeyNotFoundException e) {
+            if (unknownKids != null) {
+                unknownKids.put(keyId, Boolean.TRUE);
+            }
+            throw new InvalidTokenException(format("Key ID [%s] is not known by the JWKS source", keyId.kid()));
+        } catch (JwkException e) {
+            throw new TechnicalRuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private PublicKey load(KeyId keyId) throws JwkException {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Resolving public key with KID [{}] from [{}]", keyId.kid(), keyId.source());
+        }
+        return providerFor(keyId).get(keyId.kid()).getPublicKey();
+    }
+
+    private JwkProvider providerFor(KeyId keyId) {
+        if (jwkProvider != null) {
+            return jwkProvider;
+        }
+        var provider = providers.get(keyId.source());
+        if (provider == null) {
+            throw new IllegalArgumentException("No JwkProvider configured and the issuer does not provide a JWK URL");
+        }
+        return provider;
+    }
+
+    private void refreshAll() {
+        for (var keyId : keys.keys()) {
+            try {
+                keys.refresh(keyId, load(keyId));
+            } catch (SigningKeyNotFoundException e) {
+                LOGGER.info("Key with KID [{}] has been removed from [{}]", keyId.kid(), keyId.source());
+                keys.invalidate(keyId);
+            } catch (Exception e) {
+                // Keep the current key until it expires, the source might be temporarily unavailable
+                LOGGER.warn("Refreshing key with KID [{}] from [{}] failed: {}", keyId.kid(), keyId.source(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Remove all cached keys.
+     */
+    public void invalidateAll() {
+        keys.invalidateAll();
+        if (unknownKids != null) {
+            unknownKids.invalidateAll();
+        }
+    }
+
+    /**
+     * Return the underlying cache, e.g. to bind its statistics to a metrics registry.
+     *
+     * @return The cache instance
+     */
+    public ExpiringCache<?, PublicKey> getCache() {
+        return keys;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Stop the background refresh.
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.parser;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.lang.String.format;
+
+/**
+ * A LocalJwkProvider provides the keys of a JSON Web Key Set (JWKS) that is stored in a local file or a classpath resource,
+ * so that tokens can be validated without any call to a JWKS endpoint.
+ * <p>
+ * A JWKS file is watched with a {@link WatchService}. When it changes, the file is loaded again and the complete key set is
+ * swapped atomically, so a lookup either sees all old or all new keys. If the changed file cannot be loaded, the current keys
+ * are kept. Registered change listeners are notified after each swap, e.g. to invalidate a {@link JwksKeyCache}. Classpath
+ * resources are loaded once.
+ * <p>
+ * Keys are looked up by their key ID, so keys without a {@code kid} are skipped. If more than one key has the same
+ * {@code kid}, the first one is used.
+ *
+ * @author Heiko Scherrer
+ */
+public class LocalJwkProvider implements JwkProvider, AutoCloseable {
+
+    /** Prefix of a location that points to a classpath resource. */
+    public static final String CLASSPATH_PREFIX = "classpath:";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalJwkProvider.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private final String location;
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private final WatchService watchService;
+    private volatile Map<String, Jwk> keys;
+
+    /**
+     * Create a provider and load the JWKS from the given {@code location}.
+     *
+     * @param location A file path or a classpath resource prefixed with {@value #CLASSPATH_PREFIX}
+     * @throws UncheckedIOException if the JWKS cannot be loaded or the file cannot be watched
+     */
+    public LocalJwkProvider(String location) {
+        this.location = location;
+        if (location.startsWith(CLASSPATH_PREFIX)) {
+            var resource = location.substring(CLASSPATH_PREFIX.length());
+            try (var in = LocalJwkProvider.class.getClassLoader().getResourceAsStream(resource.startsWith("/") ? resource.substring(1) : resource)) {
+                if (in == null) {
+                    throw new IOException(format("Classpath resource [%s] does not exist", resource));
+                }
+                this.keys = read(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(format("Loading JWKS from [%s] failed", location), e);
+            }
+            this.watchService = null;
+        } else {
+            var file = Path.of(location).toAbsolutePath();
+            try {
+                this.keys = load(file);
+                this.watchService = file.getFileSystem().newWatchService();
+                file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException e) {
+                throw new UncheckedIOException(format("Loading JWKS from [%s] failed", location), e);
+            }
+            var watcher = new Thread(() -> watch(file), "ameba-jwks-watch");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+        LOGGER.info("Loaded [{}] keys from [{}]", keys.size(), location);
+    }
+
+    private static Map<String, Jwk> load(Path file) throws IOException {
+        try (var in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    private static Map<String, Jwk> read(InputStream in) throws IOException {
+        var jwks = MAPPER.readValue(in, new TypeReference<Map<String, List<Map<String, Object>>>>() { });
+        var result = new LinkedHashMap<String, Jwk>();
+        for (var values : jwks.getOrDefault("keys", List.of())) {
+            Jwk jwk;
+            try {
+                jwk = Jwk.fromValues(values);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(format("Invalid JWK in JWKS: %s", e.getMessage()), e);
+            }
+            if (jwk.getId() == null || jwk.getId().isEmpty()) {
+                LOGGER.warn("Skipping JWK of type [{}] without kid", jwk.getType());
+            } else if (result.putIfAbsent(jwk.getId(), jwk) != null) {
+                LOGGER.warn("Skipping JWK with duplicate kid [{}]", jwk.getId());
+            }
+        }
+        return Map.copyOf(result);
+    }
+
+    private void watch(Path file) {
+        try {
+            while (true) {
+                var key = watchService.take();
+                var changed = key.pollEvents().stream().anyMatch(e -> file.getFileName().equals(e.context()));
+                key.reset();
+                if (changed) {
+                    reload(file);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed, stop watching
+        }
+    }
+
+    private void reload(Path file) {
+        try {
+            var newKeys = load(file);
+            this.keys = newKeys;
+            LOGGER.info("Reloaded [{}] keys from [{}]", newKeys.size(), location);
+            changeListeners.forEach(Runnable::run);
+        } catch (IOException | RuntimeException e) {
+            // The file may be written partially, keep the current keys until the next change
+            LOGGER.warn("Reloading JWKS from [{}] failed, keeping the current keys: {}", location, e.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Jwk get(String keyId) throws SigningKeyNotFoundException {
+        var jwk = keyId == null ? null : keys.get(keyId);
+        if (jwk == null) {
+            throw new SigningKeyNotFoundException(format("No key found in [%s] with kid [%s]", location, keyId), null);
+        }
+        return jwk;
+    }
+
+    /**
+     * Return the IDs of all keys currently loaded.
+     *
+     * @return The key IDs
+     */
+    public Set<String> getKeyIds() {
+        return keys.keySet();
+    }
+
+    /**
+     * Register a {@code listener} that is called after the keys have been swapped.
+     *
+     * @param listener The listener
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Stop watching the JWKS file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
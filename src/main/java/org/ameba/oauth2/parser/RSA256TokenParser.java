@@ -15,80 +15,28 @@
  */
 package org.ameba.oauth2.parser;
 
-import com.auth0.jwk.Jwk;
 import com.auth0.jwk.JwkProvider;
-import com.auth0.jwk.UrlJwkProvider;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import org.ameba.oauth2.Asymmetric;
-import org.ameba.oauth2.InvalidTokenException;
-import org.ameba.oauth2.TokenParser;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.security.KeyFactory;
-import java.security.PublicKey;
-import java.security.spec.X509EncodedKeySpec;
-
-import static java.lang.String.format;
 
 /**
- * A RSA256TokenParser uses a SHA-256 Public Key to verify signature.
+ * A RSA256TokenParser uses a SHA-256 Public Key to verify signature. Public keys are resolved through a {@link JwksKeyCache}.
+ * <p>
+ * Prefer to share one {@link JwksKeyCache} between parsers. A parser created without a cache creates its own one, including a
+ * background refresh thread, and must be {@link #close() closed} when it is not used anymore.
  *
  * @author Heiko Scherrer
  */
-public class RSA256TokenParser implements TokenParser<Asymmetric, Jws<Claims>> {
-
-    private static final Logger LOGGER = LoggerFactory.getLogger(RSA256TokenParser.class);
-    private JwkProvider jwkProvider;
+public class RSA256TokenParser extends AbstractAsymmetricTokenParser {
 
-    public RSA256TokenParser(JwkProvider jwkProvider) {
-        this.jwkProvider = jwkProvider;
+    public RSA256TokenParser(JwksKeyCache keyCache) {
+        super(Jwts.SIG.RS256, keyCache);
     }
 
-    public RSA256TokenParser() { }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public String supportAlgorithm() {
-        return SignatureAlgorithm.RS256.toString();
+    public RSA256TokenParser(JwkProvider jwkProvider) {
+        super(Jwts.SIG.RS256, new JwksKeyCache(jwkProvider), true);
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public Jws<Claims> parse(String token, Asymmetric issuer) {
-        if (issuer == null) {
-            throw new IllegalArgumentException("Expected asymmetric issuer is null");
-        }
-        if (issuer.getKID() == null || "".equals(issuer.getKID())) {
-            throw new IllegalArgumentException("JWK kid is null or empty. Configure a kid");
-        }
-        Jws<Claims> jws;
-        try {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(format("Checking issuer with KID [%s]", issuer.getKID()));
-            }
-            Jwk jwk = jwkProvider == null
-                    ? new UrlJwkProvider(issuer.getJWKURL(), 60000, 60000).get(issuer.getKID())
-                    : jwkProvider.get(issuer.getKID());
-            byte[] publicKeyBytes = jwk.getPublicKey().getEncoded();
-            X509EncodedKeySpec keySpec = new X509EncodedKeySpec(publicKeyBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            PublicKey pubKey = keyFactory.generatePublic(keySpec);
-            jws = Jwts.parser()
-                    .setAllowedClockSkewSeconds(issuer.getSkewSeconds())
-                    .setSigningKey(pubKey)
-                    .build().parseClaimsJws(token);
-            return jws;
-        } catch (Exception e) {
-            LOGGER.error(e.getMessage(), e);
-            throw new InvalidTokenException(e.getMessage());
-        }
+    public RSA256TokenParser() {
+        super(Jwts.SIG.RS256, new JwksKeyCache(), true);
     }
 }
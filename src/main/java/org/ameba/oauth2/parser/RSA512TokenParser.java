@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.parser;
+
+import io.jsonwebtoken.Jwts;
+
+/**
+ * A RSA512TokenParser uses a RSA Public Key to verify signatures created with RSASSA-PKCS1-v1_5 using SHA-512. Public keys are
+ * resolved through a {@link JwksKeyCache}.
+ *
+ * @author Heiko Scherrer
+ */
+public class RSA512TokenParser extends AbstractAsymmetricTokenParser {
+
+    public RSA512TokenParser(JwksKeyCache keyCache) {
+        super(Jwts.SIG.RS512, keyCache);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.tenant;
+
+import org.ameba.oauth2.ExpiringCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A TenantDirectory keeps the registered tenants in memory, so that resolving a tenant by its hash does not cost a database
+ * query for each request.
+ * <p>
+ * Tenants are loaded on demand and cached by their hash for a configurable time-to-live and can be evicted explicitly when they
+ * change. All tenants can be loaded in advance with {@link #preload()}. Hashes of tenants that are not registered are
+ * remembered for a shorter time-to-live, so that requests with unknown tenants do not cause a database query each time.
+ *
+ * @author Heiko Scherrer
+ */
+public class TenantDirectory {
+
+    /** Default time-to-live of a cached tenant. */
+    public static final Duration DEFAULT_TTL = Duration.ofHours(1);
+    /** Default maximum number of cached tenants. */
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+    /** Default time-to-live of a remembered unknown tenant hash. */
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofSeconds(30);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TenantDirectory.class);
+    private static final int MAX_REALMS = 1_000;
+    private final TenantRepository repository;
+    private final ExpiringCache<String, Tenant> tenants;
+    private final ExpiringCache<String, Boolean> unknownTenants;
+    private final ConcurrentMap<String, String> realms = new ConcurrentHashMap<>();
+
+    /**
+     * The cached view of a {@link TenantEO}.
+     *
+     * @param name The tenants name
+     * @param realm The security realm this tenant is assigned to
+     */
+    public record Tenant(String name, String realm) {
+
+        /**
+         * Checks whether the tenant is assigned to the given realm.
+         *
+         * @param realm The realm to check
+         * @return {@literal true} is so, otherwise {@literal false}
+         */
+        public boolean sameRealm(String realm) {
+            return this.realm != null && this.realm.equals(realm);
+        }
+    }
+
+    public TenantDirectory(TenantRepository repository) {
+        this(repository, DEFAULT_TTL, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create a directory.
+     *
+     * @param repository The repository to resolve tenants from
+     * @param ttl The time-to-live of a cached tenant
+     * @param maxSize The maximum number of cached tenants
+     */
+    public TenantDirectory(TenantRepository repository, Duration ttl, int maxSize) {
+        this(repository, ttl, maxSize, DEFAULT_NEGATIVE_TTL);
+    }
+
+    /**
+     * Create a directory.
+     *
+     * @param repository The repository to resolve tenants from
+     * @param ttl The time-to-live of a cached tenant
+     * @param maxSize The maximum number of cached tenants and of remembered unknown tenant hashes
+     * @param negativeTtl The time-to-live of a remembered unknown tenant hash
+     */
+    public TenantDirectory(TenantRepository repository, Duration ttl, int maxSize, Duration negativeTtl) {
+        this.repository = repository;
+        this.tenants = new ExpiringCache<>("tenants", ttl, maxSize);
+        this.unknownTenants = new ExpiringCache<>("unknown-tenants", negativeTtl, maxSize);
+    }
+
+    /**
+     * Load all registered tenants into the cache. A failure is logged and tenants are loaded on demand afterwards.
+     */
+    public void preload() {
+        try {
+            var count = 0;
+            for (var eo : repository.findAll()) {
+                tenants.put(eo.getHash(), toTenant(eo));
+                count++;
+            }
+            LOGGER.info("Preloaded [{}] tenants", count);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Preloading tenants failed, tenants are loaded on demand: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Find the tenant with the given {@code hash}.
+     *
+     * @param hash The unique opaque String of the tenant
+     * @return The tenant or empty if not registered
+     */
+    public Optional<Tenant> findByHash(String hash) {
+        if (hash == null || unknownTenants.get(hash) != null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(tenants.get(hash, this::load));
+    }
+
+    private Tenant load(String hash) {
+        var tenant = repository.findByHash(hash).map(TenantDirectory::toTenant).orElse(null);
+        if (tenant == null) {
+            unknownTenants.put(hash, Boolean.TRUE);
+        }
+        return tenant;
+    }
+
+    /**
+     * Resolve the realm from the {@code issuer} of a token, that is the last path segment of the issuer URL.
+     *
+     * @param issuer The issuer ID
+     * @return The realm
+     */
+    public String realmOf(String issuer) {
+        var realm = realms.get(issuer);
+        if (realm == null) {
+            realm = issuer.substring(issuer.lastIndexOf("/") + 1);
+            // Issuers are limited by the whitelist, the bound is only a safety net
+            if (realms.size() < MAX_REALMS) {
+                realms.put(issuer, realm);
+            }
+        }
+        return realm;
+    }
+
+    /**
+     * Remove the tenant with the given {@code hash} from the cache, e.g. after it has been changed or registered.
+     *
+     * @param hash The unique opaque String of the tenant
+     */
+    public void evict(String hash) {
+        tenants.invalidate(hash);
+        unknownTenants.invalidate(hash);
+    }
+
+    /**
+     * Remove all tenants from the cache.
+     */
+    public void evictAll() {
+        tenants.invalidateAll();
+        unknownTenants.invalidateAll();
+    }
+
+    /**
+     * Return the underlying cache, e.g. to bind its statistics to a metrics registry.
+     *
+     * @return The cache instance
+     */
+    public ExpiringCache<?, ?> getCache() {
+        return tenants;
+    }
+
+    /**
+     * Return the cache of unknown tenant hashes, e.g. to bind its statistics to a metrics registry.
+     *
+     * @return The cache instance
+     */
+    public ExpiringCache<?, ?> getUnknownTenantsCache() {
+        return unknownTenants;
+    }
+
+    private static Tenant toTenant(TenantEO eo) {
+        return new Tenant(eo.getName(), eo.getRealm());
+    }
+}
@@ -38,11 +38,35 @@ import static org.ameba.Constants.HEADER_VALUE_X_TENANT;
 public class TenantValidator implements JwtValidator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TenantValidator.class);
-    private final TenantRepository repository;
+    private final TenantDirectory directory;
 
+    /**
+     * Create a validator that resolves tenants through a {@link TenantDirectory} with default settings. Tenants are loaded on
+     * demand, unless the directory is {@link TenantDirectory#preload() preloaded}, e.g. by the {@code SpringOauth2Configuration}.
+     *
+     * @param repository The repository of registered tenants
+     */
     @Inject
     public TenantValidator(TenantRepository repository) {
-        this.repository = repository;
+        this.directory = new TenantDirectory(repository);
+    }
+
+    /**
+     * Create a validator.
+     *
+     * @param directory The directory of registered tenants
+     */
+    public TenantValidator(TenantDirectory directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Return the directory used to resolve tenants.
+     *
+     * @return The directory
+     */
+    public TenantDirectory getDirectory() {
+        return directory;
     }
 
     /**
@@ -55,24 +79,36 @@ public class TenantValidator implements JwtValidator {
         }
         Jws<Claims> jws = (Jws) jwt;
         String issuer = jws.getBody().getIssuer();
-        Optional<TenantEO> tenantEO = repository.findByHash(request.getHeader(HEADER_VALUE_X_TENANT));
+        Optional<TenantDirectory.Tenant> tenant = directory.findByHash(request.getHeader(HEADER_VALUE_X_TENANT));
 
-        if (!tenantEO.isPresent()){
+        if (tenant.isEmpty()){
             throw new InvalidTokenException("Tenant not registered");
         }
 
-        String realm = issuer.substring(issuer.lastIndexOf("/")+1);
-        if (!tenantEO.get().sameRealm(realm)) {
+        if (!tenant.get().sameRealm(directory.realmOf(issuer))) {
             throw new InvalidTokenException("The issue does not match the configured REALM for the Tenant");
         }
 
-        if (!tenantEO.get().getName().equals(jws.getBody().getAudience())) {
+        if (!isIssuedFor(jws.getBody(), tenant.get().name())) {
             throw new InvalidTokenException("The token has been issued for some other audience, is the token leaked or replayed?");
         }
 
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("{} has been translated into [{}]", HEADER_VALUE_X_TENANT, tenantEO.get().getName());
+            LOGGER.debug("{} has been translated into [{}]", HEADER_VALUE_X_TENANT, tenant.get().name());
         }
-        request.setAttribute(HEADER_VALUE_X_TENANT, tenantEO.get().getName());
+        request.setAttribute(HEADER_VALUE_X_TENANT, tenant.get().name());
+    }
+
+    /**
+     * Checks whether the {@code tenant} is one of the audiences of the token. Since JJWT 0.12 the {@code aud} claim is always a
+     * set, even if the token carries a single string value.
+     *
+     * @param claims The claims of the token
+     * @param tenant The name of the tenant
+     * @return {@literal true} if so
+     */
+    private static boolean isIssuedFor(Claims claims, String tenant) {
+        var audience = claims.getAudience();
+        return tenant != null && audience != null && audience.contains(tenant);
     }
 }
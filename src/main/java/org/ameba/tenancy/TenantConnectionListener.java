@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.tenancy;
+
+/**
+ * A TenantConnectionListener is notified when a JDBC connection is acquired for a tenant and when the schema of a connection is
+ * switched to the one of a tenant. It is registered at {@link TenantSchemaUtils#setConnectionListener(TenantConnectionListener)}.
+ *
+ * @author Heiko Scherrer
+ */
+public interface TenantConnectionListener {
+
+    /**
+     * A connection has been acquired for a tenant.
+     *
+     * @param tenant The tenant identifier, may be {@literal null}
+     * @param durationNanos The time it took to acquire the connection in nanoseconds
+     */
+    void connectionAcquired(String tenant, long durationNanos);
+
+    /**
+     * The schema of a connection has been switched to the one of a tenant.
+     *
+     * @param tenant The tenant identifier, may be {@literal null}
+     */
+    void schemaSwitched(String tenant);
+}
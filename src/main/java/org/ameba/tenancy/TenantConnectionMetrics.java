@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.tenancy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A TenantConnectionMetrics records the acquisition of JDBC connections into the timer {@literal ameba.tenant.connection.acquire}
+ * and schema switches into the counter {@literal ameba.tenant.schema.switches}, both tagged with the tenant resolved by a
+ * {@link TenantTags}. Registered at {@link TenantSchemaUtils} it shows how many connections each tenant uses and how often
+ * pooled connections are switched between tenant schemas. Meters of tenants that drop out of the top N are removed.
+ *
+ * @author Heiko Scherrer
+ */
+public class TenantConnectionMetrics implements TenantConnectionListener, AutoCloseable {
+
+    private final Supplier<MeterRegistry> registrySupplier;
+    private final TenantTags tenantTags;
+    private final ConcurrentMap<String, Timer> acquisitions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> switches = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    /**
+     * Create an instance.
+     *
+     * @param registrySupplier Supplies the registry to record into, resolved with the first event
+     * @param tenantTags Resolves the tenant tag
+     */
+    public TenantConnectionMetrics(Supplier<MeterRegistry> registrySupplier, TenantTags tenantTags) {
+        this.registrySupplier = registrySupplier;
+        this.tenantTags = tenantTags;
+        var remover = new TenantMeterRemover(() -> registry, tenantTags, name -> name.startsWith("ameba.tenant."));
+        tenantTags.addRankListener(() -> {
+            acquisitions.keySet().removeIf(t -> !tenantTags.isTagValue(t));
+            switches.keySet().removeIf(t -> !tenantTags.isTagValue(t));
+            remover.run();
+        });
+    }
+
+    /**
+     * Register this instance at {@link TenantSchemaUtils}.
+     *
+     * @return This instance
+     */
+    public TenantConnectionMetrics register() {
+        TenantSchemaUtils.setConnectionListener(this);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void connectionAcquired(String tenant, long durationNanos) {
+        acquisitions.computeIfAbsent(tenantTags.tag(tenant), t -> Timer.builder("ameba.tenant.connection.acquire")
+                .description("The time to acquire a JDBC connection for a tenant")
+                .tag("tenant", t)
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .publishPercentileHistogram()
+                .register(getRegistry())
+        ).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void schemaSwitched(String tenant) {
+        switches.computeIfAbsent(tenantTags.tag(tenant), t -> Counter.builder("ameba.tenant.schema.switches")
+                .description("The number of times a JDBC connection is switched to the schema of a tenant")
+                .tag("tenant", t)
+                .register(getRegistry())
+        ).increment();
+    }
+
+    private MeterRegistry getRegistry() {
+        var result = registry;
+        if (result == null) {
+            result = registry = registrySupplier.get();
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Unregister from {@link TenantSchemaUtils}.
+     */
+    @Override
+    public void close() {
+        TenantSchemaUtils.setConnectionListener(null);
+    }
+}
@@ -15,18 +15,18 @@
  */
 package org.ameba.tenancy;
 
+import org.ameba.context.RequestContext;
+
 import java.util.Optional;
 import java.util.function.Consumer;
 
 /**
- * A TenantHolder stores a tenant inside a thread local variable.
+ * A TenantHolder stores a tenant inside the thread-bound {@link RequestContext}.
  *
  * @author Heiko Scherrer
  */
 public class TenantHolder {
 
-    private static final InheritableThreadLocal<String> TENANT_HOLDER = new InheritableThreadLocal<>();
-
     /**
      * Private Constructor.
      */
@@ -38,7 +38,7 @@ public class TenantHolder {
      * @return Tenant as String
      */
     public static String getCurrentTenant() {
-        return TENANT_HOLDER.get();
+        return RequestContext.current().getTenant();
     }
 
     /**
@@ -47,10 +47,11 @@ public class TenantHolder {
      * @return Tenant as String
      */
     public static Optional<String> currentTenant() {
-        if (TENANT_HOLDER.get() == null || TENANT_HOLDER.get().isEmpty()) {
+        var tenant = getCurrentTenant();
+        if (tenant == null || tenant.isEmpty()) {
             return Optional.empty();
         }
-        return Optional.of(TENANT_HOLDER.get());
+        return Optional.of(tenant);
     }
 
     /**
@@ -59,7 +60,7 @@ public class TenantHolder {
      * @param tenant Tenant's id to set
      */
     public static void setCurrentTenant(String tenant) {
-        TENANT_HOLDER.set(tenant);
+        RequestContext.update(ctx -> ctx.withTenant(tenant));
     }
 
     /**
@@ -68,15 +69,13 @@ public class TenantHolder {
      * @param consumer A Tenant's id consumer function
      */
     public static void setCurrentTenant(Consumer<String> consumer) {
-        if (TENANT_HOLDER.get() != null && !TENANT_HOLDER.get().isEmpty()) {
-            consumer.accept(TENANT_HOLDER.get());
-        }
+        currentTenant().ifPresent(consumer);
     }
 
     /**
      * Cleanup thread local.
      */
     public static void destroy() {
-        TENANT_HOLDER.remove();
+        RequestContext.update(ctx -> ctx.withTenant(null));
     }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.tenancy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A TenantMeterRemover removes all meters from a {@link MeterRegistry}, that are tagged with a tenant that has dropped out of
+ * the top N of a {@link TenantTags}. It is meant to be registered as rank listener, so that the number of meters per tenant tag
+ * stays bounded over the lifetime of the process. Meters created concurrently for a tenant that has just dropped out are removed
+ * with the next ranking.
+ *
+ * @author Heiko Scherrer
+ */
+public class TenantMeterRemover implements Runnable {
+
+    /** Name of the tag that holds the tenant. */
+    public static final String TAG = "tenant";
+
+    private final Supplier<MeterRegistry> registrySupplier;
+    private final TenantTags tenantTags;
+    private final Predicate<String> meterNames;
+
+    /**
+     * Create an instance.
+     *
+     * @param registrySupplier Supplies the registry to remove from, may supply {@literal null} if not resolved yet
+     * @param tenantTags The tags the tenant tag values are resolved with
+     * @param meterNames Selects the names of the meters to check
+     */
+    public TenantMeterRemover(Supplier<MeterRegistry> registrySupplier, TenantTags tenantTags, Predicate<String> meterNames) {
+        this.registrySupplier = registrySupplier;
+        this.tenantTags = tenantTags;
+        this.meterNames = meterNames;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Remove the stale meters.
+     */
+    @Override
+    public void run() {
+        var registry = registrySupplier.get();
+        if (registry == null) {
+            return;
+        }
+        for (var meter : registry.getMeters()) {
+            var tenant = meter.getId().getTag(TAG);
+            if (tenant != null && meterNames.test(meter.getId().getName()) && !tenantTags.isTagValue(tenant)) {
+                registry.remove(meter);
+            }
+        }
+    }
+}
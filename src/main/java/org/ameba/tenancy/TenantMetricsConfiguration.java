@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.tenancy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.ameba.annotation.ExcludeFromScan;
+import org.ameba.http.TenantServerRequestObservationConvention;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+
+/**
+ * A TenantMetricsConfiguration tags request, service, repository and connection metrics with the current tenant, bounded to the
+ * top {@literal ameba.metrics.tenant.top-n} tenants.
+ *
+ * @author Heiko Scherrer
+ */
+@ExcludeFromScan
+@AutoConfiguration
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+@ConditionalOnProperty(name = "ameba.metrics.tenant.enabled", havingValue = "true", matchIfMissing = true)
+public class TenantMetricsConfiguration {
+
+    @ConditionalOnMissingBean
+    public @Bean TenantTags tenantTags(@Value("${ameba.metrics.tenant.top-n:" + TenantTags.DEFAULT_TOP_N + "}") int topN,
+            @Value("${ameba.metrics.tenant.window:1m}") String window) {
+        return new TenantTags(topN, DurationStyle.detectAndParse(window));
+    }
+
+    public @Bean TenantConnectionMetrics tenantConnectionMetrics(ObjectProvider<MeterRegistry> registry, TenantTags tenantTags) {
+        return new TenantConnectionMetrics(() -> registry.getIfAvailable(() -> Metrics.globalRegistry), tenantTags).register();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnClass(name = "org.springframework.http.server.observation.ServerRequestObservationConvention")
+    public static class TenantObservationConfiguration {
+
+        @ConditionalOnMissingBean(ServerRequestObservationConvention.class)
+        public @Bean TenantServerRequestObservationConvention tenantServerRequestObservationConvention(TenantTags tenantTags,
+                ObjectProvider<MeterRegistry> registry) {
+            var convention = new TenantServerRequestObservationConvention(tenantTags);
+            tenantTags.addRankListener(new TenantMeterRemover(() -> registry.getIfAvailable(() -> Metrics.globalRegistry), tenantTags,
+                    convention.getName()::equals));
+            return convention;
+        }
+    }
+}
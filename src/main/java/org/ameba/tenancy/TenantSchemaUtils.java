@@ -16,9 +16,32 @@ import java.util.Objects;
 public class TenantSchemaUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TenantSchemaUtils.class);
+    private static volatile TenantConnectionListener connectionListener;
 
     private TenantSchemaUtils() {}
 
+    /**
+     * Set the listener to notify about acquired connections and schema switches.
+     *
+     * @param listener The listener or {@literal null} to not notify anyone
+     */
+    public static void setConnectionListener(@Nullable TenantConnectionListener listener) {
+        connectionListener = listener;
+    }
+
+    /**
+     * Notify the listener that a connection has been acquired for a tenant.
+     *
+     * @param tenantIdentifier The tenant identifier attached to the current session
+     * @param durationNanos The time it took to acquire the connection in nanoseconds
+     */
+    public static void connectionAcquired(@Nullable String tenantIdentifier, long durationNanos) {
+        var listener = connectionListener;
+        if (listener != null) {
+            listener.connectionAcquired(tenantIdentifier, durationNanos);
+        }
+    }
+
     private static String getTenantSchema(String tenantId, String tenantSchemaPrefix, String defaultSchema) {
         return tenantId == null || tenantId.equals(defaultSchema) ?
             defaultSchema :
@@ -44,6 +67,10 @@ public class TenantSchemaUtils {
                 LOGGER.debug("Switch from schema [{}] to schema [{}]", currentSchema, requiredSchema);
             }
             connection.setSchema(requiredSchema);
+            var listener = connectionListener;
+            if (listener != null) {
+                listener.schemaSwitched(tenantIdentifier);
+            }
         }
         return connection;
     }
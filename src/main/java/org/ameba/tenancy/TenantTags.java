@@ -0,0 +1,187 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.tenancy;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * A TenantTags resolves the value of a {@literal tenant} metrics tag with a bounded cardinality. Only the top N tenants by
+ * number of tagged events get their own tag value, all others are tagged with {@value #OTHER} and events without a tenant
+ * with {@value #NONE}.
+ * <p>
+ * Events are counted per tenant within a time window. With the first event after a window has passed, the tenants with the
+ * most events in that window become the new top N. Until N tenants have been seen, each new tenant gets its own tag value
+ * right away. The number of tenants counted in a window is bounded as well.
+ * <p>
+ * A tenant that drops out of the top N loses its tag value. Meters that are tagged with it have to be removed, otherwise the
+ * number of meters grows with each window. Components that create such meters register a {@link #addRankListener(Runnable)
+ * rank listener} and remove all meters with a tag value that is not {@link #isTagValue(String) valid} anymore, e.g. with a
+ * {@link TenantMeterRemover}.
+ *
+ * @author Heiko Scherrer
+ */
+public class TenantTags {
+
+    /** Tag value of events without a tenant. */
+    public static final String NONE = "none";
+    /** Tag value of tenants that are not among the top N. */
+    public static final String OTHER = "other";
+    /** Default number of tenants with an own tag value. */
+    public static final int DEFAULT_TOP_N = 20;
+    /** Default time window to rank tenants. */
+    public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(1);
+
+    private final int topN;
+    private final int maxTracked;
+    private final long windowNanos;
+    private final AtomicLong windowEnd;
+    private volatile Set<String> admitted = Set.of();
+    private volatile ConcurrentMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final List<Runnable> rankListeners = new CopyOnWriteArrayList<>();
+
+    public TenantTags() {
+        this(DEFAULT_TOP_N, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Create an instance.
+     *
+     * @param topN The number of tenants with an own tag value
+     * @param window The time window to rank tenants
+     */
+    public TenantTags(int topN, Duration window) {
+        if (topN < 0) {
+            throw new IllegalArgumentException("topN must not be negative");
+        }
+        this.topN = topN;
+        this.maxTracked = Math.max(100, topN * 10);
+        this.windowNanos = window.toNanos();
+        this.windowEnd = new AtomicLong(System.nanoTime() + windowNanos);
+    }
+
+    /**
+     * Count an event of the given {@code tenant} and return its tag value.
+     *
+     * @param tenant The tenant, may be {@literal null}
+     * @return The tag value
+     */
+    public String tag(String tenant) {
+        if (tenant == null || tenant.isEmpty()) {
+            return NONE;
+        }
+        count(tenant);
+        var end = windowEnd.get();
+        if (System.nanoTime() - end >= 0 && windowEnd.compareAndSet(end, System.nanoTime() + windowNanos) && rank()) {
+            rankListeners.forEach(Runnable::run);
+        }
+        var current = admitted;
+        if (current.contains(tenant)) {
+            return tenant;
+        }
+        return current.size() < topN && admit(tenant) ? tenant : OTHER;
+    }
+
+    /**
+     * Return the tag value of the current tenant, see {@link #tag(String)}.
+     *
+     * @return The tag value
+     */
+    public String currentTenant() {
+        return tag(TenantHolder.getCurrentTenant());
+    }
+
+    /**
+     * Return the tenants that currently have an own tag value.
+     *
+     * @return An immutable set of tenants
+     */
+    public Set<String> getTopTenants() {
+        return admitted;
+    }
+
+    /**
+     * Checks whether the given {@code value} is currently returned as tag value, either {@value #NONE}, {@value #OTHER} or
+     * one of the top tenants.
+     *
+     * @param value The tag value to check
+     * @return {@literal true} if so, otherwise meters tagged with it are stale
+     */
+    public boolean isTagValue(String value) {
+        return NONE.equals(value) || OTHER.equals(value) || admitted.contains(value);
+    }
+
+    /**
+     * Add a {@code listener} that is called after tenants have dropped out of the top N, to remove stale meters.
+     *
+     * @param listener Called on the thread that ranked the tenants
+     */
+    public void addRankListener(Runnable listener) {
+        rankListeners.add(listener);
+    }
+
+    private void count(String tenant) {
+        var window = counts;
+        var counter = window.get(tenant);
+        if (counter == null) {
+            if (window.size() >= maxTracked) {
+                return;
+            }
+            counter = window.computeIfAbsent(tenant, t -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    private synchronized boolean admit(String tenant) {
+        if (admitted.size() >= topN) {
+            return admitted.contains(tenant);
+        }
+        var extended = new HashSet<>(admitted);
+        extended.add(tenant);
+        admitted = Set.copyOf(extended);
+        return true;
+    }
+
+    /**
+     * Rank the tenants of the passed window.
+     *
+     * @return {@literal true} if a tenant has dropped out of the top N
+     */
+    private synchronized boolean rank() {
+        var window = counts;
+        counts = new ConcurrentHashMap<>();
+        if (window.isEmpty()) {
+            return false;
+        }
+        var previous = admitted;
+        admitted = window.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed())
+                .limit(topN)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toUnmodifiableSet());
+        return !admitted.containsAll(previous);
+    }
+}
@@ -22,12 +22,13 @@ import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.type.AnnotationMetadata;
 
 /**
- * A AspectsSelector does the programatic configuration based on the {@link EnableMultiTenancy} counterpart.
+ * A AspectsSelector does the programatic configuration based on the {@link EnableMultiTenancy} counterpart. It is deferred, so
+ * that the beans of the application are registered first and can replace the defaults, e.g. an {@code InvocationMetrics}.
  *
  * @author Heiko Scherrer
  * @since 1.7
  */
-public class AspectsSelector implements ImportSelector {
+public class AspectsSelector implements DeferredImportSelector {
 
     /**
      * {@inheritDoc}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A IDGeneratorTest.
+ *
+ * @author Heiko Scherrer
+ */
+class IDGeneratorTest {
+
+    @Test void shall_generate_version_7_uuids_in_time_order() throws InterruptedException {
+        var testee = new TimeOrderedIDGenerator();
+        var first = testee.next();
+        Thread.sleep(2);
+        var second = UUID.fromString(testee.generate());
+
+        assertThat(first.version()).isEqualTo(7);
+        assertThat(first.variant()).isEqualTo(2);
+        assertThat(first.getMostSignificantBits() >>> 16).isLessThanOrEqualTo(System.currentTimeMillis());
+        assertThat(second.toString()).isGreaterThan(first.toString());
+    }
+
+    @Test void shall_generate_ulids_in_time_order() throws InterruptedException {
+        var testee = new UlidIDGenerator();
+        var first = testee.generate();
+        Thread.sleep(2);
+        var second = testee.generate();
+
+        assertThat(first).hasSize(26).matches("[0-9A-HJKMNP-TV-Z]+");
+        assertThat(second).isGreaterThan(first);
+    }
+
+    @Test void shall_generate_unique_ids_per_node() {
+        var testee = new NodeCounterIDGenerator(4711);
+        var ids = new HashSet<String>();
+        for (int i = 0; i < 1000; i++) {
+            assertThat(ids.add(testee.generate())).isTrue();
+        }
+        assertThat(UUID.fromString(testee.generate()).getMostSignificantBits()).isEqualTo(4711);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.aop;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A AccessLogSamplerTest.
+ *
+ * @author Heiko Scherrer
+ */
+class AccessLogSamplerTest {
+
+    @AfterEach void tearDown() {
+        MDC.remove(AccessLogSampler.TRACE_ID);
+    }
+
+    @Test void shall_sample_every_nth_call() {
+        var sampler = AccessLogSampler.of(AccessLogSampler.Strategy.EVERY_NTH, 10, 0, null);
+        assertThat(IntStream.range(0, 100).filter(i -> sampler.sample()).count()).isEqualTo(10);
+    }
+
+    @Test void shall_log_slow_calls_only() {
+        var sampler = AccessLogSampler.of(AccessLogSampler.Strategy.NONE, 1, 0, Duration.ofMillis(100));
+        assertThat(sampler.sample()).isFalse();
+        assertThat(sampler.isSlow(Duration.ofMillis(50).toNanos())).isFalse();
+        assertThat(sampler.isSlow(Duration.ofMillis(150).toNanos())).isTrue();
+        assertThat(AccessLogSampler.all().isSlow(Long.MAX_VALUE)).isFalse();
+    }
+
+    @Test void shall_stick_to_the_decision_of_a_trace() {
+        var sampler = AccessLogSampler.of(AccessLogSampler.Strategy.TRACE, 1, 0.5, null);
+        var sampled = 0;
+        for (int trace = 0; trace < 1_000; trace++) {
+            MDC.put(AccessLogSampler.TRACE_ID, Integer.toHexString(trace * 31));
+            var first = sampler.sample();
+            assertThat(IntStream.range(0, 5).allMatch(i -> sampler.sample() == first)).isTrue();
+            sampled += first ? 1 : 0;
+        }
+        assertThat(sampled).isBetween(400, 600);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.aop;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ameba.annotation.EnableAspects;
+import org.ameba.tenancy.TenantHolder;
+import org.ameba.tenancy.TenantMetricsConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A AspectsConfigurationTest.
+ *
+ * @author Heiko Scherrer
+ */
+class AspectsConfigurationTest {
+
+    @AfterEach void tearDown() {
+        TenantHolder.destroy();
+    }
+
+    @Test void shall_provide_micrometer_metrics_by_default() {
+        new ApplicationContextRunner()
+                .withUserConfiguration(DefaultConfiguration.class)
+                .run(ctx -> {
+                    assertThat(ctx).hasNotFailed();
+                    assertThat(ctx).hasSingleBean(InvocationMetrics.class);
+                    assertThat(ctx.getBean(InvocationMetrics.class)).isInstanceOf(MicrometerInvocationMetrics.class);
+                });
+    }
+
+    @Test void shall_back_off_if_metrics_are_provided() {
+        new ApplicationContextRunner()
+                .withUserConfiguration(HistogramConfiguration.class)
+                .run(ctx -> {
+                    assertThat(ctx).hasNotFailed();
+                    assertThat(ctx).hasSingleBean(InvocationMetrics.class);
+                    assertThat(ctx.getBean(InvocationMetrics.class)).isInstanceOf(HistogramInvocationMetrics.class);
+                });
+    }
+
+    @Test void shall_tag_the_tenant_with_tenant_metrics() {
+        new ApplicationContextRunner()
+                .withUserConfiguration(RegistryConfiguration.class)
+                .withConfiguration(AutoConfigurations.of(TenantMetricsConfiguration.class))
+                .run(ctx -> assertThat(recordTenantTag(ctx.getBean(InvocationMetrics.class), ctx.getBean(MeterRegistry.class))).isEqualTo("tenant"));
+    }
+
+    @Test void shall_not_tag_the_tenant_without_tenant_metrics() {
+        new ApplicationContextRunner()
+                .withUserConfiguration(RegistryConfiguration.class)
+                .withConfiguration(AutoConfigurations.of(TenantMetricsConfiguration.class))
+                .withPropertyValues("ameba.metrics.tenant.enabled=false")
+                .run(ctx -> assertThat(recordTenantTag(ctx.getBean(InvocationMetrics.class), ctx.getBean(MeterRegistry.class)))
+                        .isEqualTo(MicrometerInvocationMetrics.NO_TENANT));
+    }
+
+    private static String recordTenantTag(InvocationMetrics metrics, MeterRegistry registry) throws Exception {
+        TenantHolder.setCurrentTenant("tenant");
+        metrics.record(InvocationMetrics.SERVICE, AspectsConfigurationTest.class, AspectsConfigurationTest.class.getDeclaredMethod("tearDown"), 1_000, false);
+        return registry.get("ameba.aop.service").timer().getId().getTag("tenant");
+    }
+
+    @EnableAspects
+    @Configuration(proxyBeanMethods = false)
+    static class DefaultConfiguration {
+    }
+
+    @EnableAspects
+    @Configuration(proxyBeanMethods = false)
+    static class RegistryConfiguration {
+
+        @Bean MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @EnableAspects
+    @Configuration(proxyBeanMethods = false)
+    static class HistogramConfiguration {
+
+        @Bean HistogramInvocationMetrics histogramInvocationMetrics() {
+            return new HistogramInvocationMetrics();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.aop;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * A LatencyHistogramTest.
+ *
+ * @author Heiko Scherrer
+ */
+class LatencyHistogramTest {
+
+    @Test void shall_keep_values_within_their_buckets() {
+        for (long value = 0; value <= LatencyHistogram.MAX_VALUE; value = value * 3 / 2 + 1) {
+            var index = LatencyHistogram.indexOf(value);
+            assertThat(value).isBetween(LatencyHistogram.lowestValueAt(index), LatencyHistogram.highestValueAt(index));
+        }
+    }
+
+    @Test void shall_sample_sub_millisecond_percentiles() {
+        var histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100_000; i++) {
+            histogram.record(i * 10L);
+        }
+
+        var sample = histogram.sample();
+
+        assertThat(sample.getCount()).isEqualTo(100_000);
+        assertThat(sample.getMeanNanos()).isEqualTo(500_005.0);
+        assertThat((double) sample.getValueAtPercentile(50)).isCloseTo(500_000, within(500_000 * 0.016));
+        assertThat((double) sample.getValueAtPercentile(99)).isCloseTo(990_000, within(990_000 * 0.016));
+        assertThat((double) sample.getMaxNanos()).isCloseTo(1_000_000, within(1_000_000 * 0.016));
+        assertThat(histogram.sample().getCount()).isZero();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.aop;
+
+import org.ameba.annotation.NotTransformed;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A MethodMetadataTest.
+ *
+ * @author Heiko Scherrer
+ */
+class MethodMetadataTest {
+
+    static class Target {
+        @NotTransformed
+        void notTransformed() { }
+    }
+
+    @Test void shall_resolve_metadata_once() throws Exception {
+        var method = Target.class.getDeclaredMethod("notTransformed");
+        var signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(method);
+        var pjp = mock(ProceedingJoinPoint.class);
+        when(pjp.getTarget()).thenReturn(new Target());
+        when(pjp.getSignature()).thenReturn(signature);
+        when(pjp.toShortString()).thenReturn("execution(Target.notTransformed())");
+        var binds = new AtomicInteger();
+        var cache = new MethodMetadata.Cache(InvocationMetrics.SERVICE, (layer, type, m) -> {
+            binds.incrementAndGet();
+            return (duration, failed) -> { };
+        });
+
+        var metadata = cache.get(pjp);
+
+        assertThat(cache.get(pjp)).isSameAs(metadata);
+        assertThat(binds).hasValue(1);
+        assertThat(metadata.displayName).isEqualTo("Target#notTransformed");
+        assertThat(metadata.shortString).isEqualTo("execution(Target.notTransformed())");
+        assertThat(metadata.notTransformed).isTrue();
+        assertThat(metadata.recorder).isNotNull();
+    }
+
+    @Test void shall_find_not_logged_causes() {
+        assertThat(MethodMetadata.hasNotLogged(new RuntimeException(new MyNotLoggedException("cause")))).isTrue();
+        assertThat(MethodMetadata.hasNotLogged(new RuntimeException(new MyException("cause")))).isFalse();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.aop;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ameba.tenancy.TenantHolder;
+import org.ameba.tenancy.TenantTags;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A MicrometerInvocationMetricsTest.
+ *
+ * @author Heiko Scherrer
+ */
+class MicrometerInvocationMetricsTest {
+
+    @AfterEach void tearDown() {
+        TenantHolder.destroy();
+    }
+
+    @Test void shall_record_tagged_timers() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        var metrics = new MicrometerInvocationMetrics(registry);
+        var method = MyService.class.getDeclaredMethod("logged");
+
+        metrics.record(InvocationMetrics.SERVICE, MyService.class, method, 1_500, false);
+        TenantHolder.setCurrentTenant("tenant");
+        metrics.record(InvocationMetrics.SERVICE, MyService.class, method, 2_500, true);
+
+        var success = registry.get("ameba.aop.service").tag("outcome", "success").tag("tenant", MicrometerInvocationMetrics.NO_TENANT).timer();
+        assertThat(success.count()).isEqualTo(1);
+        assertThat(success.totalTime(TimeUnit.NANOSECONDS)).isEqualTo(1_500);
+        var error = registry.get("ameba.aop.service").tag("outcome", "error").tag("tenant", "tenant").timer();
+        assertThat(error.count()).isEqualTo(1);
+        assertThat(error.getId().getTag("class")).isEqualTo("MyService");
+        assertThat(error.getId().getTag("method")).isEqualTo("logged");
+    }
+
+    @Test void shall_bound_tenant_tags_across_windows() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        var metrics = new MicrometerInvocationMetrics(() -> registry, new TenantTags(2, Duration.ofMillis(100)));
+        var recorder = metrics.bind(InvocationMetrics.SERVICE, MyService.class, MyService.class.getDeclaredMethod("logged"));
+
+        // Two pairs of tenants take turns being the busiest for two windows each
+        for (int window = 0; window < 6; window++) {
+            var pair = window / 2 % 2 == 0 ? new String[]{"a", "b"} : new String[]{"c", "d"};
+            for (int i = 0; i < 10; i++) {
+                for (var tenant : pair) {
+                    TenantHolder.setCurrentTenant(tenant);
+                    recorder.record(1_000, false);
+                }
+            }
+            assertThat(registry.find("ameba.aop.service").timers().stream().map(t -> t.getId().getTag("tenant")).distinct())
+                    .hasSizeLessThanOrEqualTo(2 + 2);
+            Thread.sleep(120);
+        }
+
+        // a has been removed in window 3 and admitted again in window 5, the recorder must not keep the removed timer
+        assertThat(registry.find("ameba.aop.service").tag("tenant", "c").timers()).isEmpty();
+        var timer = registry.get("ameba.aop.service").tag("tenant", "a").tag("outcome", "success").timer();
+        assertThat(timer.count()).isEqualTo(10);
+    }
+
+    @Test void shall_not_keep_removed_timers_of_a_readmitted_tenant() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        var tenantTags = new TenantTags(1, Duration.ofMillis(100));
+        var metrics = new MicrometerInvocationMetrics(() -> registry, tenantTags);
+        var recorder = metrics.bind(InvocationMetrics.SERVICE, MyService.class, MyService.class.getDeclaredMethod("logged"));
+        TenantHolder.setCurrentTenant("a");
+        recorder.record(1_000, false);
+
+        // b is the busiest tenant, so a drops out with the next window
+        for (int i = 0; i < 3; i++) {
+            tenantTags.tag("b");
+        }
+        Thread.sleep(120);
+        tenantTags.tag("b");
+        assertThat(registry.find("ameba.aop.service").tag("tenant", "a").timers()).isEmpty();
+
+        // a is admitted again before the recorder is used again
+        for (int i = 0; i < 5; i++) {
+            tenantTags.tag("a");
+        }
+        Thread.sleep(120);
+        tenantTags.tag("a");
+        assertThat(tenantTags.getTopTenants()).containsExactly("a");
+
+        recorder.record(1_000, false);
+        var timer = registry.get("ameba.aop.service").tag("tenant", "a").tag("outcome", "success").timer();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+}
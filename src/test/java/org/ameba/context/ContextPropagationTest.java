@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.context;
+
+import org.ameba.tenancy.TenantHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A ContextPropagationTest.
+ *
+ * @author Heiko Scherrer
+ */
+class ContextPropagationTest {
+
+    @AfterEach void tearDown() {
+        RequestContext.clear();
+        MDC.clear();
+    }
+
+    @Test void shall_run_pooled_tasks_with_context_of_submitter() throws Exception {
+        var testee = new ContextPropagatingExecutorService(Executors.newSingleThreadExecutor());
+        try {
+            testee.submit(() -> TenantHolder.setCurrentTenant("stale")).get();
+            TenantHolder.setCurrentTenant("tenant");
+            MDC.put("key", "value");
+
+            assertThat(testee.submit(() -> TenantHolder.getCurrentTenant() + MDC.get("key")).get()).isEqualTo("tenantvalue");
+
+            RequestContext.clear();
+            MDC.clear();
+            assertThat(testee.submit(() -> TenantHolder.getCurrentTenant() + MDC.get("key")).get()).isEqualTo("nullnull");
+        } finally {
+            testee.shutdown();
+        }
+    }
+}
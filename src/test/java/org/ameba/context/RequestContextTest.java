@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.context;
+
+import org.ameba.http.RequestIDHolder;
+import org.ameba.http.identity.IdentityContextHolder;
+import org.ameba.tenancy.TenantHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A RequestContextTest.
+ *
+ * @author Heiko Scherrer
+ */
+class RequestContextTest {
+
+    @AfterEach void tearDown() {
+        RequestContext.clear();
+        RequestContext.setPropagation(RequestContext.Propagation.INHERITABLE);
+    }
+
+    @Test void shall_capture_and_restore_all_holders() {
+        TenantHolder.setCurrentTenant("tenant");
+        IdentityContextHolder.setCurrentIdentity("identity");
+        RequestIDHolder.setRequestID("4711");
+        var captured = RequestContext.current();
+
+        TenantHolder.destroy();
+        IdentityContextHolder.destroy();
+        RequestIDHolder.destroy();
+        assertThat(RequestContext.current().isEmpty()).isTrue();
+        assertThat(captured.getTenant()).isEqualTo("tenant");
+
+        var previous = RequestContext.restore(captured);
+        assertThat(previous.isEmpty()).isTrue();
+        assertThat(TenantHolder.getCurrentTenant()).isEqualTo("tenant");
+        assertThat(IdentityContextHolder.getCurrentIdentity()).isEqualTo("identity");
+        assertThat(RequestIDHolder.getRequestID()).isEqualTo("4711");
+    }
+
+    @Test void shall_not_change_captured_snapshot() {
+        TenantHolder.setCurrentTenant("tenant");
+        var captured = RequestContext.current();
+
+        TenantHolder.setCurrentTenant("other");
+
+        assertThat(captured.getTenant()).isEqualTo("tenant");
+        assertThat(TenantHolder.getCurrentTenant()).isEqualTo("other");
+    }
+
+    @Test void shall_parse_propagation_defensively() {
+        assertThat(RequestContext.parsePropagation(" Scoped ")).isEqualTo(RequestContext.Propagation.SCOPED);
+        assertThat(RequestContext.parsePropagation("inheritable")).isEqualTo(RequestContext.Propagation.INHERITABLE);
+        assertThat(RequestContext.parsePropagation("unknown")).isEqualTo(RequestContext.Propagation.INHERITABLE);
+        assertThat(RequestContext.parsePropagation(null)).isEqualTo(RequestContext.Propagation.INHERITABLE);
+    }
+
+    @Test void shall_bind_propagation_from_environment() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(ContextPropagationConfiguration.class))
+                .withPropertyValues(RequestContext.PROPAGATION_PROPERTY + "=scoped")
+                .run(ctx -> assertThat(RequestContext.getPropagation()).isEqualTo(RequestContext.Propagation.SCOPED));
+    }
+
+    @Test void shall_bind_context_for_the_scope_only() {
+        RequestContext.setPropagation(RequestContext.Propagation.SCOPED);
+        RequestIDHolder.setRequestID("outer");
+        var seen = new AtomicReference<String>();
+
+        RequestContext.runWith(RequestContext.empty().withTenant("tenant"), () -> {
+            seen.set(TenantHolder.getCurrentTenant());
+            RequestIDHolder.setRequestID("inner");
+        });
+
+        assertThat(seen.get()).isEqualTo("tenant");
+        assertThat(TenantHolder.getCurrentTenant()).isNull();
+        assertThat(RequestIDHolder.getRequestID()).isEqualTo("outer");
+    }
+
+    @Test void shall_return_result_and_restore_after_failure() throws Exception {
+        RequestContext.setPropagation(RequestContext.Propagation.SCOPED);
+        TenantHolder.setCurrentTenant("outer");
+
+        var result = RequestContext.callWith(RequestContext.empty().withTenant("inner"), TenantHolder::getCurrentTenant);
+        assertThat(result).isEqualTo("inner");
+
+        assertThatThrownBy(() -> RequestContext.callWith(RequestContext.empty(), () -> {
+            TenantHolder.setCurrentTenant("failed");
+            throw new IOException("expected");
+        })).isInstanceOf(IOException.class).hasMessage("expected");
+        assertThat(TenantHolder.getCurrentTenant()).isEqualTo("outer");
+    }
+
+    @Test void shall_not_inherit_context_in_scoped_mode() throws Exception {
+        RequestContext.setPropagation(RequestContext.Propagation.SCOPED);
+        var seen = new AtomicReference<String>("unset");
+
+        RequestContext.runWith(RequestContext.empty().withTenant("tenant"), () -> {
+            var thread = new Thread(() -> seen.set(TenantHolder.getCurrentTenant()));
+            thread.start();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertThat(seen.get()).isNull();
+    }
+
+    @Test void shall_inherit_context_by_default() throws Exception {
+        TenantHolder.setCurrentTenant("tenant");
+        var seen = new AtomicReference<String>();
+
+        var thread = new Thread(() -> seen.set(TenantHolder.getCurrentTenant()));
+        thread.start();
+        thread.join();
+
+        assertThat(RequestContext.getPropagation()).isEqualTo(RequestContext.Propagation.INHERITABLE);
+        assertThat(seen.get()).isEqualTo("tenant");
+    }
+}
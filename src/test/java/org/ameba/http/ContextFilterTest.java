@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.http;
+
+import org.ameba.Constants;
+import org.ameba.context.RequestContext;
+import org.ameba.http.identity.IdentityResolverStrategy;
+import org.ameba.http.identity.SimpleIdentity;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A ContextFilterTest.
+ *
+ * @author Heiko Scherrer
+ */
+class ContextFilterTest {
+
+    private ContextFilter filter(boolean throwIfNotPresent) throws Exception {
+        var config = new MockFilterConfig();
+        config.addInitParameter(Constants.PARAM_MULTI_TENANCY_ENABLED, "true");
+        config.addInitParameter(Constants.PARAM_MULTI_TENANCY_THROW_IF_NOT_PRESENT, String.valueOf(throwIfNotPresent));
+        var filter = new ContextFilter(null, () -> "generated");
+        filter.init(config);
+        return filter;
+    }
+
+    @Test void shall_bind_tenant_and_request_id_for_the_chain() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(Constants.HEADER_VALUE_X_TENANT, "tenant");
+        var seen = new AtomicReference<RequestContext>();
+        var mdc = new AtomicReference<String>();
+
+        filter(true).doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            seen.set(RequestContext.current());
+            mdc.set(MDC.get(Constants.HEADER_VALUE_X_TENANT));
+        });
+
+        assertThat(seen.get().getTenant()).isEqualTo("tenant");
+        assertThat(seen.get().getRequestId()).isEqualTo("generated");
+        assertThat(mdc.get()).isEqualTo("tenant");
+        assertThat(RequestContext.current().isEmpty()).isTrue();
+        assertThat(MDC.get(Constants.HEADER_VALUE_X_TENANT)).isNull();
+    }
+
+    @Test void shall_fail_without_tenant() throws Exception {
+        var response = new MockHttpServletResponse();
+        var filter = filter(true);
+        assertThatThrownBy(() -> filter.doFilter(new MockHttpServletRequest("GET", "/"), response, (req, res) -> { }))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+
+    @Test void shall_take_over_request_id() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(Constants.HEADER_VALUE_X_REQUESTID, "4711");
+        var seen = new AtomicReference<RequestContext>();
+
+        filter(false).doFilter(request, new MockHttpServletResponse(), (req, res) -> seen.set(RequestContext.current()));
+
+        assertThat(seen.get().getTenant()).isNull();
+        assertThat(seen.get().getRequestId()).isEqualTo("4711");
+    }
+
+    @Test void shall_keep_request_id_set_upstream() throws Exception {
+        RequestIDHolder.setRequestID("upstream");
+        MDC.put(Constants.HEADER_VALUE_X_REQUESTID, "upstream");
+        var seen = new AtomicReference<RequestContext>();
+        var mdc = new AtomicReference<String>();
+        try {
+            filter(false).doFilter(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse(), (req, res) -> {
+                seen.set(RequestContext.current());
+                mdc.set(MDC.get(Constants.HEADER_VALUE_X_REQUESTID));
+            });
+
+            assertThat(seen.get().getRequestId()).isEqualTo("upstream");
+            assertThat(mdc.get()).isEqualTo("upstream");
+            assertThat(RequestIDHolder.getRequestID()).isEqualTo("upstream");
+            assertThat(MDC.get(Constants.HEADER_VALUE_X_REQUESTID)).isEqualTo("upstream");
+        } finally {
+            RequestContext.clear();
+            MDC.clear();
+        }
+    }
+
+    private ContextFilter identityFilter(boolean throwIfNotPresent) throws Exception {
+        var config = new MockFilterConfig();
+        config.addInitParameter(Constants.PARAM_IDENTITY_ENABLED, "true");
+        config.addInitParameter(Constants.PARAM_IDENTITY_THROW_IF_NOT_PRESENT, String.valueOf(throwIfNotPresent));
+        IdentityResolverStrategy strategy = (headers, bodyParts, queryParams) ->
+                Optional.ofNullable(headers.get(Constants.HEADER_VALUE_X_IDENTITY)).map(v -> new SimpleIdentity(v.get(0)));
+        var filter = new ContextFilter(strategy, null);
+        filter.init(config);
+        return filter;
+    }
+
+    @Test void shall_bind_identity_for_the_chain() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(Constants.HEADER_VALUE_X_IDENTITY, "user");
+        var seen = new AtomicReference<RequestContext>();
+
+        identityFilter(true).doFilter(request, new MockHttpServletResponse(), (req, res) -> seen.set(RequestContext.current()));
+
+        assertThat(seen.get().getIdentity()).isEqualTo("user");
+        assertThat(RequestContext.current().isEmpty()).isTrue();
+    }
+
+    @Test void shall_pass_without_optional_identity() throws Exception {
+        var seen = new AtomicReference<RequestContext>();
+        var response = new MockHttpServletResponse();
+
+        identityFilter(false).doFilter(new MockHttpServletRequest("GET", "/"), response, (req, res) -> seen.set(RequestContext.current()));
+
+        assertThat(seen.get().getIdentity()).isNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test void shall_fail_without_required_identity() throws Exception {
+        var response = new MockHttpServletResponse();
+        var filter = identityFilter(true);
+        assertThatThrownBy(() -> filter.doFilter(new MockHttpServletRequest("GET", "/"), response, (req, res) -> { }))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.http.ctx;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A CallContextCodecTest.
+ *
+ * @author Heiko Scherrer
+ */
+class CallContextCodecTest {
+
+    @Test void shall_decode_all_encodings() throws IOException {
+        var ctx = new CallContext("caller");
+        ctx.setTraceId("4bf92f3577b34da6a3ce929d0e0e4736");
+        ctx.getDetails().put("string", "value");
+        ctx.getDetails().put("int", -1);
+        ctx.getDetails().put("long", Long.MAX_VALUE);
+        ctx.getDetails().put("boolean", true);
+        ctx.getDetails().put("double", 1.5);
+        ctx.getDetails().put("null", null);
+        ctx.getDetails().put("list", new ArrayList<>(List.of("a", "b")));
+
+        var json = CallContextCodec.encode(ctx, CallContextEncoding.JSON);
+        var binary = CallContextCodec.encode(ctx, CallContextEncoding.BINARY);
+
+        assertThat(binary).startsWith(CallContextCodec.BINARY_PREFIX).hasSizeLessThan(json.length());
+        assertThat(CallContextCodec.decode(json)).isEqualTo(ctx);
+        assertThat(CallContextCodec.decode(binary)).isEqualTo(ctx);
+    }
+
+    @Test void shall_deflate_large_details() throws IOException {
+        var ctx = new CallContext();
+        for (int i = 0; i < 50; i++) {
+            ctx.getDetails().put("key" + i, "a repeated value " + i);
+        }
+
+        var binary = CallContextCodec.encode(ctx, CallContextEncoding.BINARY);
+
+        assertThat(binary).hasSizeLessThan(CallContextCodec.DEFLATE_THRESHOLD * 2);
+        assertThat(CallContextCodec.decode(binary)).isEqualTo(ctx);
+    }
+
+    @Test void shall_reject_truncated_input() {
+        assertThatThrownBy(() -> CallContextCodec.decode(CallContextCodec.BINARY_PREFIX + "AAAA")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> CallContextCodec.decode("not base64!")).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.http.ctx;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A CallContextHolderTest.
+ *
+ * @author Heiko Scherrer
+ */
+class CallContextHolderTest {
+
+    @AfterEach void tearDown() {
+        CallContextHolder.destroy();
+        CallContextHolder.setEncoding(CallContextEncoding.JSON);
+    }
+
+    @Test void shall_parse_encoding_defensively() {
+        assertThat(CallContextHolder.parseEncoding(null)).isEqualTo(CallContextEncoding.JSON);
+        assertThat(CallContextHolder.parseEncoding(" binary ")).isEqualTo(CallContextEncoding.BINARY);
+        assertThat(CallContextHolder.parseEncoding("binray")).isEqualTo(CallContextEncoding.JSON);
+    }
+
+    @Test void shall_bind_encoding_from_environment() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(CallContextConfiguration.class))
+                .withPropertyValues(CallContextHolder.ENCODING_PROPERTY + "=binary")
+                .run(ctx -> assertThat(CallContextHolder.getEncoding()).isEqualTo(CallContextEncoding.BINARY));
+
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(CallContextConfiguration.class))
+                .withPropertyValues(CallContextHolder.ENCODING_PROPERTY + "=unknown")
+                .run(ctx -> {
+                    assertThat(ctx).hasNotFailed();
+                    assertThat(CallContextHolder.getEncoding()).isEqualTo(CallContextEncoding.JSON);
+                });
+    }
+
+    @Test void shall_reuse_encoded_context_until_changed() {
+        var ctx = new CallContext("caller");
+        ctx.setTraceId("4711");
+        CallContextHolder.setCallContext(() -> null, ctx);
+
+        var encoded = CallContextHolder.getEncodedCallContext().orElseThrow();
+        assertThat(CallContextHolder.getEncodedCallContext()).containsSame(encoded);
+
+        ctx.setTraceId("4711");
+        assertThat(CallContextHolder.getEncodedCallContext()).containsSame(encoded);
+
+        ctx.getDetails().put("key", "value");
+        var changed = CallContextHolder.getEncodedCallContext().orElseThrow();
+        assertThat(changed).isNotEqualTo(encoded);
+
+        ctx.setTraceId("0815");
+        assertThat(CallContextHolder.getEncodedCallContext()).isNotEqualTo(changed);
+    }
+
+    @Test void shall_track_changes_through_detail_views() {
+        var ctx = new CallContext("caller");
+        ctx.getDetails().putAll(Map.of("a", "1", "b", "2", "c", "3", "d", "4"));
+
+        var version = ctx.version();
+        ctx.getDetails().entrySet().iterator().next().setValue("0");
+        assertThat(ctx.version()).isGreaterThan(version);
+
+        version = ctx.version();
+        ctx.getDetails().keySet().remove("a");
+        assertThat(ctx.version()).isGreaterThan(version);
+
+        version = ctx.version();
+        ctx.getDetails().values().removeIf("2"::equals);
+        assertThat(ctx.version()).isGreaterThan(version);
+
+        version = ctx.version();
+        ctx.getDetails().entrySet().removeIf(e -> e.getKey().equals("c"));
+        assertThat(ctx.version()).isGreaterThan(version);
+        assertThat(ctx.getDetails()).containsOnlyKeys("d");
+    }
+
+    @Test void shall_not_reuse_encoded_context_after_details_replaced() {
+        var ctx = new CallContext("caller");
+        ctx.getDetails().put("key", "value");
+        CallContextHolder.setCallContext(() -> null, ctx);
+        var encoded = CallContextHolder.getEncodedCallContext().orElseThrow();
+
+        ctx.setDetails(Map.of("other", "value"));
+
+        var changed = CallContextHolder.getEncodedCallContext().orElseThrow();
+        assertThat(changed).isNotEqualTo(encoded);
+        CallContextHolder.setCallContext(() -> changed, new CallContext());
+        assertThat(CallContextHolder.getOptionalCallContext()).map(CallContext::getDetails).contains(Map.of("other", "value"));
+    }
+
+    @Test void shall_decode_encoded_context() {
+        var ctx = new CallContext("caller");
+        ctx.getDetails().put("key", "value");
+        CallContextHolder.setCallContext(() -> null, ctx);
+        var encoded = CallContextHolder.getEncodedCallContext().orElseThrow();
+        CallContextHolder.destroy();
+
+        CallContextHolder.setCallContext(() -> encoded, new CallContext());
+        assertThat(CallContextHolder.getOptionalCallContext()).contains(ctx);
+    }
+
+    @Test void shall_pass_unread_context_unchanged() {
+        var encoded = "not decodable";
+        CallContextHolder.setCallContext(() -> encoded, () -> { throw new IllegalStateException("Default not expected"); });
+
+        assertThat(CallContextHolder.getEncodedCallContext()).containsSame(encoded);
+        assertThat(CallContextHolder.getOptionalCallContext()).isEmpty();
+    }
+
+    @Test void shall_apply_caller_after_decoding() {
+        var ctx = new CallContext("caller");
+        CallContextHolder.setCallContext(() -> null, ctx);
+        var encoded = CallContextHolder.getEncodedCallContext().orElseThrow();
+
+        CallContextHolder.setCallContext(() -> encoded, new CallContext());
+        CallContextHolder.setCaller(() -> "other");
+
+        assertThat(CallContextHolder.getEncodedCallContext()).isNotEqualTo(encoded);
+        assertThat(CallContextHolder.getOptionalCallContext()).map(CallContext::getCaller).contains("other");
+    }
+}
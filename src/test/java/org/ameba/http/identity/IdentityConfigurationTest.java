@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.http.identity;
+
+import org.ameba.Constants;
+import org.ameba.http.multitenancy.MultiTenancyConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A IdentityConfigurationTest.
+ *
+ * @author Heiko Scherrer
+ */
+class IdentityConfigurationTest {
+
+    @BeforeEach void setUp() {
+        MultiTenancyConfiguration.enabled = true;
+        IdentityConfiguration.enabled = true;
+        IdentityConfiguration.strategy = (headers, bodyParts, params) -> Optional.empty();
+    }
+
+    @AfterEach void tearDown() {
+        MultiTenancyConfiguration.enabled = false;
+        MultiTenancyConfiguration.urlPatterns = null;
+        IdentityConfiguration.enabled = false;
+        IdentityConfiguration.urlPatterns = null;
+        IdentityConfiguration.strategy = null;
+    }
+
+    @Test void shall_resolve_identity_in_context_filter_for_same_url_patterns() {
+        MultiTenancyConfiguration.urlPatterns = new String[]{"/api/*", "/v1/*"};
+        IdentityConfiguration.urlPatterns = new String[]{"/v1/*", "/api/*"};
+
+        assertThat(new IdentityConfiguration().identityFilterRegistrationBean().isEnabled()).isFalse();
+        assertThat(new MultiTenancyConfiguration().contextFilter().getInitParameters())
+                .containsEntry(Constants.PARAM_IDENTITY_ENABLED, "true");
+    }
+
+    @Test void shall_resolve_identity_in_context_filter_for_default_url_patterns() {
+        assertThat(new IdentityConfiguration().identityFilterRegistrationBean().isEnabled()).isFalse();
+        assertThat(new MultiTenancyConfiguration().contextFilter().getInitParameters())
+                .containsEntry(Constants.PARAM_IDENTITY_ENABLED, "true");
+    }
+
+    @Test void shall_keep_identity_filter_for_different_url_patterns() {
+        MultiTenancyConfiguration.urlPatterns = new String[]{"/api/*"};
+        IdentityConfiguration.urlPatterns = new String[]{"/api/*", "/admin/*"};
+
+        var identityFilter = new IdentityConfiguration().identityFilterRegistrationBean();
+        assertThat(identityFilter.isEnabled()).isTrue();
+        assertThat(identityFilter.getUrlPatterns()).containsExactly("/api/*", "/admin/*");
+        assertThat(new MultiTenancyConfiguration().contextFilter().getInitParameters())
+                .containsEntry(Constants.PARAM_IDENTITY_ENABLED, "false");
+    }
+}
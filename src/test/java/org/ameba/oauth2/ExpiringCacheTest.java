@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A ExpiringCacheTest.
+ *
+ * @author Heiko Scherrer
+ */
+class ExpiringCacheTest {
+
+    static class MutableClock extends Clock {
+        Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @Test void shall_expire_entries_after_ttl() {
+        var clock = new MutableClock();
+        var testee = new ExpiringCache<String, String>("test", Duration.ofSeconds(10), 10, clock);
+        testee.put("k", "v");
+
+        assertThat(testee.get("k")).isEqualTo("v");
+        clock.now = clock.now.plusSeconds(10);
+        assertThat(testee.get("k")).isNull();
+        assertThat(testee.getHitCount()).isEqualTo(1);
+        assertThat(testee.getMissCount()).isEqualTo(1);
+    }
+
+    @Test void shall_expire_entries_at_explicit_point_in_time() {
+        var clock = new MutableClock();
+        var testee = new ExpiringCache<String, String>("test", Duration.ofMinutes(10), 10, clock);
+        testee.put("k", "v", clock.now.plusSeconds(5));
+
+        clock.now = clock.now.plusSeconds(5);
+        assertThat(testee.get("k")).isNull();
+    }
+
+    @Test void shall_respect_maxSize() {
+        var clock = new MutableClock();
+        var testee = new ExpiringCache<Integer, Integer>("test", Duration.ofMinutes(10), 10, clock);
+        for (int i = 0; i < 20; i++) {
+            clock.now = clock.now.plusMillis(1);
+            testee.put(i, i);
+        }
+        assertThat(testee.size()).isLessThanOrEqualTo(10);
+        assertThat(testee.get(19)).isEqualTo(19);
+        assertThat(testee.getEvictionCount()).isPositive();
+    }
+
+    @Test void shall_not_cache_failed_loads() {
+        var testee = new ExpiringCache<String, String>("test", Duration.ofMinutes(1), 10);
+        assertThatThrownBy(() -> testee.get("k", k -> { throw new InvalidTokenException("Unknown"); }))
+                .isInstanceOf(InvalidTokenException.class);
+        assertThat(testee.get("k", k -> "v")).isEqualTo("v");
+    }
+
+    @Test void shall_coalesce_concurrent_loads() throws Exception {
+        var testee = new ExpiringCache<String, String>("test", Duration.ofMinutes(1), 10);
+        var invocations = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var first = executor.submit(() -> testee.get("k", k -> {
+                invocations.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "v";
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            var second = executor.submit(() -> testee.get("k", k -> {
+                invocations.incrementAndGet();
+                return "other";
+            }));
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("v");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("v");
+            assertThat(invocations.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import io.jsonwebtoken.Jwt;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * A JwtValidationStrategyTest.
+ *
+ * @author Heiko Scherrer
+ */
+class JwtValidationStrategyTest {
+
+    private static final String AUTH_HEADER = "Bearer a.b.c";
+    private TokenExtractor first;
+    private TokenExtractor second;
+    private JwtValidator validator;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        first = mock(TokenExtractor.class);
+        second = mock(TokenExtractor.class);
+        validator = mock(JwtValidator.class);
+        request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.AUTHORIZATION, AUTH_HEADER);
+    }
+
+    @Test void shall_stop_at_first_extracted_jwt() {
+        var jwt = mock(Jwt.class);
+        when(first.canExtract(AUTH_HEADER)).thenReturn(new ExtractionResult());
+        when(first.extract(AUTH_HEADER)).thenReturn(new ExtractionResult(jwt));
+
+        new JwtValidationStrategy(List.of(first, second), validator).doFilter(request, new MockHttpServletResponse());
+
+        verify(validator).validate(jwt, request);
+        verifyNoInteractions(second);
+    }
+
+    @Test void shall_fall_back_to_next_extractor_if_not_extractable() {
+        var jwt = mock(Jwt.class);
+        when(first.canExtract(AUTH_HEADER)).thenReturn(new ExtractionResult("Not supported"));
+        when(second.canExtract(AUTH_HEADER)).thenReturn(new ExtractionResult());
+        when(second.extract(AUTH_HEADER)).thenReturn(new ExtractionResult(jwt));
+
+        new JwtValidationStrategy(List.of(first, second), validator).doFilter(request, new MockHttpServletResponse());
+
+        verify(first, never()).extract(anyString());
+        verify(validator).validate(jwt, request);
+    }
+
+    @Test void shall_fall_back_to_next_extractor_if_no_jwt_extracted() {
+        var jwt = mock(Jwt.class);
+        when(first.canExtract(AUTH_HEADER)).thenReturn(new ExtractionResult());
+        when(first.extract(AUTH_HEADER)).thenReturn(new ExtractionResult("No alg claim defined in JWT header"));
+        when(second.canExtract(AUTH_HEADER)).thenReturn(new ExtractionResult());
+        when(second.extract(AUTH_HEADER)).thenReturn(new ExtractionResult(jwt));
+
+        new JwtValidationStrategy(List.of(first, second), validator).doFilter(request, new MockHttpServletResponse());
+
+        verify(validator).validate(jwt, request);
+    }
+
+    @Test void shall_fail_if_no_extractor_extracts() {
+        when(first.canExtract(AUTH_HEADER)).thenReturn(new ExtractionResult("Not supported"));
+        when(second.canExtract(AUTH_HEADER)).thenReturn(new ExtractionResult("Not supported"));
+        var testee = new JwtValidationStrategy(List.of(first, second), validator);
+
+        assertThatThrownBy(() -> testee.doFilter(request, new MockHttpServletResponse()))
+                .isInstanceOf(InvalidTokenException.class);
+        verify(validator, never()).validate(any(), any());
+    }
+
+    @Test void shall_ignore_requests_without_bearer() {
+        var testee = new JwtValidationStrategy(List.of(first, second), validator);
+
+        testee.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        verifyNoInteractions(first, second, validator);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A JwtViewTest.
+ *
+ * @author Heiko Scherrer
+ */
+class JwtViewTest {
+
+    @Test void shall_check_structure() {
+        assertThat(JwtView.isJwt("a.b.c", 0)).isTrue();
+        assertThat(JwtView.isJwt("Bearer a.b.c", 7)).isTrue();
+        assertThat(JwtView.isJwt("a.b", 0)).isFalse();
+        assertThat(JwtView.isJwt("a.b.c.d", 0)).isFalse();
+        assertThat(JwtView.isJwt("Bearer ", 7)).isFalse();
+        assertThatThrownBy(() -> JwtView.of("a.b")).isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test void shall_decode_header_and_payload_behind_offset() {
+        var key = Jwts.SIG.HS512.key().build();
+        var token = Jwts.builder()
+                .header().keyId("kid1").and()
+                .issuer("http://localhost/realm")
+                .subject("user")
+                .expiration(new Date(1_900_000_000_000L))
+                .claim("nested", Map.of("roles", List.of("a", "b")))
+                .signWith(key)
+                .compact();
+
+        var testee = JwtView.of("Bearer " + token, 7);
+
+        assertThat(testee.token()).isEqualTo(token);
+        assertThat(testee.header()).isEqualTo(new JwtView.Header("HS512", "kid1"));
+        assertThat(testee.payload()).isEqualTo(new JwtView.Payload("http://localhost/realm", "user", 1_900_000_000L));
+    }
+}
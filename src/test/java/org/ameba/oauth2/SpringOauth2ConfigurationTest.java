@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import com.auth0.jwk.JwkProvider;
+import org.ameba.oauth2.tenant.TenantRepository;
+import org.ameba.oauth2.tenant.TenantValidator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A SpringOauth2ConfigurationTest.
+ *
+ * @author Heiko Scherrer
+ */
+class SpringOauth2ConfigurationTest {
+
+    private final TenantRepository repository = mock(TenantRepository.class);
+
+    private ApplicationContextRunner runner() {
+        when(repository.findAll()).thenReturn(List.of());
+        return new ApplicationContextRunner()
+                .withUserConfiguration(SpringOauth2Configuration.class)
+                .withBean(JwkProvider.class, () -> mock(JwkProvider.class))
+                .withBean(IssuerWhiteList.class, () -> mock(IssuerWhiteList.class))
+                .withBean(JwtValidator.class, () -> new TenantValidator(repository));
+    }
+
+    @Test void shall_preload_tenants_at_startup() {
+        runner().run(ctx -> {
+            assertThat(ctx).hasNotFailed();
+            verify(repository).findAll();
+        });
+    }
+
+    @Test void shall_not_preload_tenants_if_disabled() {
+        runner().withPropertyValues(SpringOauth2Configuration.TENANT_PRELOAD_PROPERTY + "=false").run(ctx -> {
+            assertThat(ctx).hasNotFailed();
+            verify(repository, never()).findAll();
+        });
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A TokenParserRegistryTest.
+ *
+ * @author Heiko Scherrer
+ */
+class TokenParserRegistryTest {
+
+    @Test void shall_find_parser_by_alg() {
+        var rs256 = parser("RS256");
+        var hs512 = parser("HS512");
+        var testee = new TokenParserRegistry(List.of(rs256, hs512));
+
+        assertThat(testee.getParser("RS256")).isSameAs(rs256);
+        assertThat(testee.getParser("HS512")).isSameAs(hs512);
+        assertThat(testee.getAlgorithms()).containsExactlyInAnyOrder("RS256", "HS512");
+    }
+
+    @Test void shall_reject_unknown_alg() {
+        var testee = new TokenParserRegistry(List.of(parser("RS256")));
+
+        assertThatThrownBy(() -> testee.getParser("none"))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessageContaining("none");
+        assertThatThrownBy(() -> testee.getParser(null)).isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test void shall_prefer_first_parser_of_same_alg() {
+        var first = parser("RS256");
+        var second = parser("RS256");
+        var testee = new TokenParserRegistry(List.of(first, second));
+
+        assertThat(testee.getParser("RS256")).isSameAs(first);
+    }
+
+    private static TokenParser<?, ?> parser(String alg) {
+        TokenParser<?, ?> parser = mock(TokenParser.class);
+        when(parser.supportAlgorithm()).thenReturn(alg);
+        return parser;
+    }
+}
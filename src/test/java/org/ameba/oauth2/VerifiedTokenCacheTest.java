@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A VerifiedTokenCacheTest.
+ *
+ * @author Heiko Scherrer
+ */
+class VerifiedTokenCacheTest {
+
+    @Test void shall_expire_tokens_before_exp_claim() {
+        var clock = new ExpiringCacheTest.MutableClock();
+        clock.now = Instant.now();
+        var testee = new VerifiedTokenCache(Duration.ofMinutes(5), 10, Duration.ofSeconds(5), clock);
+        var jwt = jwtExpiringAt(Date.from(clock.now.plusSeconds(60)));
+        testee.put("token", jwt);
+
+        assertThat(testee.get("token")).isSameAs(jwt);
+        assertThat(testee.get("other")).isNull();
+        clock.now = clock.now.plusSeconds(55);
+        assertThat(testee.get("token")).isNull();
+    }
+
+    @Test void shall_not_cache_tokens_about_to_expire() {
+        var clock = new ExpiringCacheTest.MutableClock();
+        clock.now = Instant.now();
+        var testee = new VerifiedTokenCache(Duration.ofMinutes(5), 10, Duration.ofSeconds(5), clock);
+        testee.put("token", jwtExpiringAt(Date.from(clock.now.plusSeconds(3))));
+
+        assertThat(testee.get("token")).isNull();
+    }
+
+    private static io.jsonwebtoken.Jwt<?, ?> jwtExpiringAt(Date exp) {
+        var token = Jwts.builder().issuer("test").expiration(exp).compact();
+        return Jwts.parser().unsecured().build().parseUnsecuredClaims(token);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.issuer;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.UrlJwkProvider;
+import org.ameba.oauth2.InvalidTokenException;
+import org.ameba.oauth2.Issuer;
+import org.ameba.oauth2.IssuerWhiteList;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A CachingIssuerWhiteListTest.
+ *
+ * @author Heiko Scherrer
+ */
+class CachingIssuerWhiteListTest {
+
+    private static final String ISSUER = "http://localhost/realms/test";
+
+    @Test void shall_cache_issuers_until_ttl() throws Exception {
+        IssuerWhiteList<Issuer> delegate = mock(IssuerWhiteList.class);
+        var issuer = issuer("kid1");
+        when(delegate.getIssuers(ISSUER)).thenReturn(List.of(issuer));
+        when(delegate.getIssuer(ISSUER, "kid1")).thenReturn(issuer);
+        var testee = new CachingIssuerWhiteList<>(delegate, Duration.ofMillis(500), 10);
+
+        assertThat(testee.getIssuers(ISSUER)).containsExactly(issuer);
+        assertThat(testee.getIssuers(ISSUER)).containsExactly(issuer);
+        assertThat(testee.getIssuer(ISSUER, "kid1")).isSameAs(issuer);
+        assertThat(testee.getIssuer(ISSUER, "kid1")).isSameAs(issuer);
+        verify(delegate).getIssuers(ISSUER);
+        verify(delegate).getIssuer(ISSUER, "kid1");
+
+        Thread.sleep(600);
+        testee.getIssuers(ISSUER);
+        testee.getIssuer(ISSUER, "kid1");
+        verify(delegate, times(2)).getIssuers(ISSUER);
+        verify(delegate, times(2)).getIssuer(ISSUER, "kid1");
+    }
+
+    @Test void shall_not_cache_rejected_issuers() {
+        IssuerWhiteList<Issuer> delegate = mock(IssuerWhiteList.class);
+        when(delegate.getIssuers(ISSUER)).thenThrow(new InvalidTokenException("Token issuer not accepted"));
+        var testee = new CachingIssuerWhiteList<>(delegate);
+
+        assertThatThrownBy(() -> testee.getIssuers(ISSUER)).isInstanceOf(InvalidTokenException.class);
+        assertThatThrownBy(() -> testee.getIssuers(ISSUER)).isInstanceOf(InvalidTokenException.class);
+        verify(delegate, times(2)).getIssuers(ISSUER);
+    }
+
+    @Test void shall_handle_null_from_delegate() {
+        IssuerWhiteList<Issuer> delegate = mock(IssuerWhiteList.class);
+        when(delegate.getIssuers(ISSUER)).thenReturn(null);
+        var testee = new CachingIssuerWhiteList<>(delegate);
+
+        assertThat(testee.getIssuers(ISSUER)).isEmpty();
+        assertThat(testee.getIssuer(ISSUER, "kid1")).isNull();
+        testee.getIssuers(ISSUER);
+        verify(delegate, times(2)).getIssuers(ISSUER);
+    }
+
+    @Test void shall_invalidate_issuer_when_new_kid_is_stored() throws Exception {
+        var issUrl = new URL(ISSUER);
+        var known = new IssuerEO("known", issUrl);
+        known.setKID("kid1");
+        known.setJWKURL(new URL(ISSUER + "/certs"));
+        var saved = new CopyOnWriteArrayList<IssuerEO>();
+        var jpaRepository = mock(JpaIssuerRepository.class);
+        when(jpaRepository.findByIssUrl(issUrl)).thenAnswer(i -> {
+            var result = new ArrayList<IssuerEO>();
+            result.add(known);
+            result.addAll(saved);
+            return result;
+        });
+        when(jpaRepository.findByIssUrlAndKid(any(), anyString()))
+                .thenAnswer(i -> saved.stream().filter(eo -> eo.getKID().equals(i.getArgument(1))).findFirst());
+        when(jpaRepository.save(any())).thenAnswer(i -> {
+            saved.add(i.getArgument(0));
+            return i.getArgument(0);
+        });
+        var repository = new JwksUrlRepository(jpaRepository, Duration.ofMinutes(1), Duration.ofMinutes(10), Duration.ofSeconds(5),
+                url -> new UrlJwkProvider(url) {
+                    @Override
+                    public List<Jwk> getAll() {
+                        return List.of(Jwk.fromValues(Map.of("kid", "kid2", "kty", "RSA")));
+                    }
+                });
+        var testee = new CachingIssuerWhiteList<>(new PersistentIssuerWhiteList(repository)).listenTo(repository).listenTo(repository);
+        assertThat(testee.getIssuers(ISSUER)).hasSize(1);
+
+        assertThat(repository.findByIssUrlAndKid(issUrl, "kid2")).isPresent();
+
+        assertThat(testee.getIssuers(ISSUER)).hasSize(2);
+    }
+
+    private static Issuer issuer(String kid) throws Exception {
+        return new ConfiguredIssuer(ISSUER, 60, new URL("http://localhost"), null, null, kid);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.issuer;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.UrlJwkProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A JwksUrlRepositoryTest.
+ *
+ * @author Heiko Scherrer
+ */
+class JwksUrlRepositoryTest {
+
+    private final List<IssuerEO> saved = new CopyOnWriteArrayList<>();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final List<String> published = new CopyOnWriteArrayList<>(List.of("kid1", "kid2"));
+    private JpaIssuerRepository jpaRepository;
+    private URL issUrl;
+    private JwksUrlRepository testee;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        issUrl = new URL("http://localhost/realms/test");
+        var known = new IssuerEO("known", issUrl);
+        known.setKID("kid1");
+        known.setJWKURL(new URL("http://localhost/realms/test/certs"));
+        jpaRepository = mock(JpaIssuerRepository.class);
+        when(jpaRepository.findByIssUrl(issUrl)).thenAnswer(i -> {
+            var result = new ArrayList<IssuerEO>();
+            result.add(known);
+            result.addAll(saved);
+            return result;
+        });
+        when(jpaRepository.findByIssUrlAndKid(any(), anyString()))
+                .thenAnswer(i -> saved.stream().filter(eo -> eo.getKID().equals(i.getArgument(1))).findFirst());
+        when(jpaRepository.save(any())).thenAnswer(i -> {
+            saved.add(i.getArgument(0));
+            return i.getArgument(0);
+        });
+        testee = repository(Duration.ofSeconds(5));
+    }
+
+    private JwksUrlRepository repository(Duration minFetchInterval) {
+        return new JwksUrlRepository(jpaRepository, Duration.ofMinutes(1), Duration.ofMinutes(10), minFetchInterval, url -> new UrlJwkProvider(url) {
+            @Override
+            public List<Jwk> getAll() {
+                fetches.incrementAndGet();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return published.stream().map(kid -> Jwk.fromValues(Map.of("kid", kid, "kty", "RSA"))).toList();
+            }
+        });
+    }
+
+    @Test void shall_resolve_a_new_kid_only_once() throws Exception {
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var results = new ArrayList<Future<?>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> testee.findByIssUrlAndKid(issUrl, "kid2")));
+            }
+            for (var result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).asString().contains("kid2");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(fetches.get()).isEqualTo(1);
+        assertThat(saved).hasSize(1);
+    }
+
+    @Test void shall_not_lookup_unknown_kids_again_during_backoff() {
+        assertThat(testee.findByIssUrlAndKid(issUrl, "forged1")).isEmpty();
+        assertThat(testee.findByIssUrlAndKid(issUrl, "forged1")).isEmpty();
+        assertThat(testee.findByIssUrlAndKid(issUrl, "forged2")).isEmpty();
+        assertThat(fetches.get()).isEqualTo(1);
+        assertThat(saved).isEmpty();
+    }
+
+    @Test void shall_accept_a_new_kid_right_after_a_forged_one() {
+        assertThat(testee.findByIssUrlAndKid(issUrl, "forged1")).isEmpty();
+
+        assertThat(testee.findByIssUrlAndKid(issUrl, "kid2")).isPresent();
+        assertThat(fetches.get()).isEqualTo(1);
+        assertThat(saved).hasSize(1);
+    }
+
+    @Test void shall_not_hold_back_a_rotated_kid_by_forged_kids() throws Exception {
+        testee = repository(Duration.ofMillis(300));
+        assertThat(testee.findByIssUrlAndKid(issUrl, "forged1")).isEmpty();
+        published.add("kid3");
+
+        // Published after the last fetch, so not accepted before the next fetch
+        assertThat(testee.findByIssUrlAndKid(issUrl, "kid3")).isEmpty();
+        Thread.sleep(350);
+        assertThat(testee.findByIssUrlAndKid(issUrl, "forged2")).isEmpty();
+        assertThat(testee.findByIssUrlAndKid(issUrl, "forged3")).isEmpty();
+
+        assertThat(testee.findByIssUrlAndKid(issUrl, "kid3")).isPresent();
+        assertThat(fetches.get()).isEqualTo(2);
+    }
+}
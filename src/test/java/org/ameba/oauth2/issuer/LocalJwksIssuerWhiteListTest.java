@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.issuer;
+
+import org.ameba.oauth2.Asymmetric;
+import org.ameba.oauth2.InvalidTokenException;
+import org.ameba.oauth2.parser.LocalJwkProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.source.InvalidConfigurationPropertyValueException;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A LocalJwksIssuerWhiteListTest.
+ *
+ * @author Heiko Scherrer
+ */
+class LocalJwksIssuerWhiteListTest {
+
+    private static final String ISSUER = "http://localhost/realms/test";
+    private LocalJwksIssuerWhiteList testee;
+
+    @BeforeEach
+    void setUp() {
+        var jwkProvider = mock(LocalJwkProvider.class);
+        when(jwkProvider.getKeyIds()).thenReturn(Set.of("kid1", "kid2"));
+        testee = new LocalJwksIssuerWhiteList(ISSUER, 30, "http://localhost", jwkProvider);
+    }
+
+    @Test void shall_return_one_issuer_per_key() {
+        var issuers = testee.getIssuers(ISSUER);
+
+        assertThat(issuers).hasSize(2);
+        assertThat(issuers).extracting(i -> ((Asymmetric) i).getKID()).containsExactlyInAnyOrder("kid1", "kid2");
+        assertThat(issuers).allSatisfy(i -> {
+            assertThat(i.getIssuerId()).isEqualTo(ISSUER);
+            assertThat(i.getSkewSeconds()).isEqualTo(30);
+        });
+    }
+
+    @Test void shall_accept_known_kid_only() {
+        assertThat(((Asymmetric) testee.getIssuer(ISSUER, "kid1")).getKID()).isEqualTo("kid1");
+        assertThatThrownBy(() -> testee.getIssuer(ISSUER, "unknown")).isInstanceOf(InvalidTokenException.class);
+        assertThatThrownBy(() -> testee.getIssuer(ISSUER, null)).isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test void shall_reject_other_issuers() {
+        assertThatThrownBy(() -> testee.getIssuers("http://localhost/realms/other")).isInstanceOf(InvalidTokenException.class);
+        assertThatThrownBy(() -> testee.getIssuer("http://localhost/realms/other", "kid1")).isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test void shall_reject_invalid_base_url() {
+        var jwkProvider = mock(LocalJwkProvider.class);
+        assertThatThrownBy(() -> new LocalJwksIssuerWhiteList(ISSUER, 30, "not a url", jwkProvider))
+                .isInstanceOf(InvalidConfigurationPropertyValueException.class);
+        assertThatThrownBy(() -> new LocalJwksIssuerWhiteList(ISSUER, 30, "localhost", jwkProvider))
+                .isInstanceOf(InvalidConfigurationPropertyValueException.class);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.parser;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import org.ameba.oauth2.InvalidTokenException;
+import org.ameba.oauth2.issuer.ConfiguredIssuer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A AsymmetricTokenParserTest.
+ *
+ * @author Heiko Scherrer
+ */
+class AsymmetricTokenParserTest {
+
+    private static final String ISSUER = "http://localhost/realms/test";
+    private final Map<String, PublicKey> publicKeys = new ConcurrentHashMap<>();
+    private final JwkProvider jwkProvider = kid -> {
+        var publicKey = publicKeys.get(kid);
+        if (publicKey == null) {
+            throw new SigningKeyNotFoundException("No key found for kid " + kid, null);
+        }
+        var jwk = mock(Jwk.class);
+        when(jwk.getPublicKey()).thenReturn(publicKey);
+        return jwk;
+    };
+    private final JwksKeyCache keyCache = new JwksKeyCache(jwkProvider);
+
+    @AfterEach
+    void tearDown() {
+        keyCache.close();
+    }
+
+    @Test void shall_verify_rs256() throws Exception {
+        assertVerifies(RSA256TokenParser::new, Jwts.SIG.RS256);
+    }
+
+    @Test void shall_verify_rs384() throws Exception {
+        assertVerifies(RSA384TokenParser::new, Jwts.SIG.RS384);
+    }
+
+    @Test void shall_verify_rs512() throws Exception {
+        assertVerifies(RSA512TokenParser::new, Jwts.SIG.RS512);
+    }
+
+    @Test void shall_verify_ps256() throws Exception {
+        assertVerifies(PS256TokenParser::new, Jwts.SIG.PS256);
+    }
+
+    @Test void shall_verify_es256() throws Exception {
+        assertVerifies(ES256TokenParser::new, Jwts.SIG.ES256);
+    }
+
+    @Test void shall_verify_es384() throws Exception {
+        assertVerifies(ES384TokenParser::new, Jwts.SIG.ES384);
+    }
+
+    @Test void shall_reuse_parser_per_issuer_kid_and_skew() throws Exception {
+        publicKeys.put("kid1", Jwts.SIG.RS256.keyPair().build().getPublic());
+        publicKeys.put("kid2", Jwts.SIG.RS256.keyPair().build().getPublic());
+        var testee = new RSA256TokenParser(keyCache);
+
+        var parser = testee.getParser(issuer("kid1", 60));
+        assertThat(testee.getParser(issuer("kid1", 60))).isSameAs(parser);
+        assertThat(testee.getParser(issuer("kid1", 30))).isNotSameAs(parser);
+        assertThat(testee.getParser(issuer("kid2", 60))).isNotSameAs(parser);
+    }
+
+    @Test void shall_rebuild_parser_when_key_rotates() throws Exception {
+        var oldKeys = Jwts.SIG.RS256.keyPair().build();
+        publicKeys.put("kid1", oldKeys.getPublic());
+        var testee = new RSA256TokenParser(keyCache);
+        var parser = testee.getParser(issuer("kid1", 60));
+        assertThat(testee.parse(sign(oldKeys, Jwts.SIG.RS256, "kid1"), issuer("kid1", 60)).getPayload().getIssuer()).isEqualTo(ISSUER);
+
+        var newKeys = Jwts.SIG.RS256.keyPair().build();
+        publicKeys.put("kid1", newKeys.getPublic());
+        keyCache.invalidateAll();
+
+        assertThat(testee.getParser(issuer("kid1", 60))).isNotSameAs(parser);
+        assertThat(testee.parse(sign(newKeys, Jwts.SIG.RS256, "kid1"), issuer("kid1", 60)).getPayload().getIssuer()).isEqualTo(ISSUER);
+        assertThatThrownBy(() -> testee.parse(sign(oldKeys, Jwts.SIG.RS256, "kid1"), issuer("kid1", 60)))
+                .isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test void shall_reject_missing_kid() throws Exception {
+        var testee = new RSA256TokenParser(keyCache);
+
+        assertThatThrownBy(() -> testee.parse("a.b.c", issuer(null, 60))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> testee.parse("a.b.c", null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void assertVerifies(Function<JwksKeyCache, AbstractAsymmetricTokenParser> factory,
+            SignatureAlgorithm algorithm) throws Exception {
+        var keys = algorithm.keyPair().build();
+        publicKeys.put("kid1", keys.getPublic());
+        var testee = factory.apply(keyCache);
+
+        assertThat(testee.supportAlgorithm()).isEqualTo(algorithm.getId());
+        assertThat(testee.parse(sign(keys, algorithm, "kid1"), issuer("kid1", 60)).getPayload().getSubject()).isEqualTo("test");
+
+        var otherKeys = algorithm.keyPair().build();
+        assertThatThrownBy(() -> testee.parse(sign(otherKeys, algorithm, "kid1"), issuer("kid1", 60)))
+                .isInstanceOf(InvalidTokenException.class);
+    }
+
+    private static String sign(KeyPair keys, SignatureAlgorithm algorithm, String kid) {
+        return Jwts.builder()
+                .header().keyId(kid).and()
+                .issuer(ISSUER)
+                .subject("test")
+                .signWith(keys.getPrivate(), algorithm)
+                .compact();
+    }
+
+    private static ConfiguredIssuer issuer(String kid, int skewSeconds) throws Exception {
+        return new ConfiguredIssuer(ISSUER, skewSeconds, new URL("http://localhost"), null, null, kid);
+    }
+}
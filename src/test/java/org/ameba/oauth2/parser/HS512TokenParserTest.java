@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.parser;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.Jwts;
+import org.ameba.oauth2.InvalidTokenException;
+import org.ameba.oauth2.issuer.ConfiguredIssuer;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.net.URL;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A HS512TokenParserTest.
+ *
+ * @author Heiko Scherrer
+ */
+class HS512TokenParserTest {
+
+    private static final String ISSUER = "http://localhost/realms/test";
+
+    @Test void shall_verify_hs512() throws Exception {
+        var key = Jwts.SIG.HS512.key().build();
+        var testee = new HS512TokenParser();
+
+        assertThat(testee.supportAlgorithm()).isEqualTo("HS512");
+        var jwt = (Jws<Claims>) testee.parse(sign(key), issuer(key));
+        assertThat(jwt.getPayload().getSubject()).isEqualTo("test");
+    }
+
+    @Test void shall_cache_parser_per_signing_key() throws Exception {
+        var key = Jwts.SIG.HS512.key().build();
+        var otherKey = Jwts.SIG.HS512.key().build();
+        var testee = new HS512TokenParser();
+
+        var parser = testee.getParser(issuer(key));
+        assertThat(testee.getParser(issuer(key))).isSameAs(parser);
+        assertThat(testee.getParser(issuer(otherKey))).isNotSameAs(parser);
+    }
+
+    @Test void shall_reject_token_of_other_signing_key() throws Exception {
+        var key = Jwts.SIG.HS512.key().build();
+        var rotatedKey = Jwts.SIG.HS512.key().build();
+        var testee = new HS512TokenParser();
+        testee.parse(sign(key), issuer(key));
+
+        assertThatThrownBy(() -> testee.parse(sign(key), issuer(rotatedKey))).isInstanceOf(InvalidTokenException.class);
+        assertThat(testee.parse(sign(rotatedKey), issuer(rotatedKey))).isNotNull();
+    }
+
+    private static String sign(SecretKey key) {
+        return Jwts.builder().issuer(ISSUER).subject("test").signWith(key).compact();
+    }
+
+    private static ConfiguredIssuer issuer(SecretKey key) throws Exception {
+        return new ConfiguredIssuer(ISSUER, 60, new URL("http://localhost"), Base64.getEncoder().encodeToString(key.getEncoded()), null, null);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.parser;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import io.jsonwebtoken.Jwts;
+import org.ameba.oauth2.InvalidTokenException;
+import org.ameba.oauth2.issuer.ConfiguredIssuer;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A JwksKeyCacheTest.
+ *
+ * @author Heiko Scherrer
+ */
+class JwksKeyCacheTest {
+
+    private final Map<String, Jwk> jwks = new ConcurrentHashMap<>();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final JwkProvider jwkProvider = kid -> {
+        fetches.incrementAndGet();
+        var jwk = jwks.get(kid);
+        if (jwk == null) {
+            throw new SigningKeyNotFoundException("No key found for kid " + kid, null);
+        }
+        return jwk;
+    };
+
+    @Test void shall_cache_resolved_keys() throws Exception {
+        var publicKey = addKey("kid1");
+        try (var testee = new JwksKeyCache(jwkProvider, Duration.ofMinutes(5), 10, null, Duration.ofSeconds(30))) {
+            assertThat(testee.getPublicKey(issuer("kid1"))).isSameAs(publicKey);
+            assertThat(testee.getPublicKey(issuer("kid1"))).isSameAs(publicKey);
+            assertThat(fetches).hasValue(1);
+        }
+    }
+
+    @Test void shall_rate_limit_unknown_kid() throws Exception {
+        try (var testee = new JwksKeyCache(jwkProvider, Duration.ofMinutes(5), 10, null, Duration.ofSeconds(30))) {
+            assertThatThrownBy(() -> testee.getPublicKey(issuer("forged"))).isInstanceOf(InvalidTokenException.class);
+            assertThatThrownBy(() -> testee.getPublicKey(issuer("forged"))).isInstanceOf(InvalidTokenException.class);
+            assertThat(fetches).hasValue(1);
+        }
+    }
+
+    @Test void shall_not_block_rotated_kid_after_unknown_kid() throws Exception {
+        try (var testee = new JwksKeyCache(jwkProvider, Duration.ofMinutes(5), 10, null, Duration.ofSeconds(30))) {
+            assertThatThrownBy(() -> testee.getPublicKey(issuer("forged"))).isInstanceOf(InvalidTokenException.class);
+            var rotated = addKey("rotated");
+
+            assertThat(testee.getPublicKey(issuer("rotated"))).isSameAs(rotated);
+            assertThat(fetches).hasValue(2);
+        }
+    }
+
+    @Test void shall_refetch_unknown_kid_after_interval() throws Exception {
+        try (var testee = new JwksKeyCache(jwkProvider, Duration.ofMinutes(5), 10, null, Duration.ofMillis(50))) {
+            assertThatThrownBy(() -> testee.getPublicKey(issuer("late"))).isInstanceOf(InvalidTokenException.class);
+            var late = addKey("late");
+            Thread.sleep(100);
+
+            assertThat(testee.getPublicKey(issuer("late"))).isSameAs(late);
+        }
+    }
+
+    @Test void shall_close_own_key_cache_only() {
+        var shared = mock(JwksKeyCache.class);
+        new RSA256TokenParser(shared).close();
+        verify(shared, never()).close();
+
+        var owned = mock(JwksKeyCache.class);
+        new AbstractAsymmetricTokenParser(Jwts.SIG.RS256, owned, true) { }.close();
+        verify(owned).close();
+    }
+
+    private PublicKey addKey(String kid) throws JwkException {
+        var publicKey = Jwts.SIG.RS256.keyPair().build().getPublic();
+        var jwk = mock(Jwk.class);
+        when(jwk.getPublicKey()).thenReturn(publicKey);
+        jwks.put(kid, jwk);
+        return publicKey;
+    }
+
+    private static ConfiguredIssuer issuer(String kid) throws Exception {
+        return new ConfiguredIssuer("issuer", 60, new URL("http://localhost/auth"), null, null, kid);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.parser;
+
+import com.auth0.jwk.SigningKeyNotFoundException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A LocalJwkProviderTest.
+ *
+ * @author Heiko Scherrer
+ */
+class LocalJwkProviderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test void shall_load_keys_from_file() throws Exception {
+        var publicKey = (RSAPublicKey) Jwts.SIG.RS256.keyPair().build().getPublic();
+        var file = write("jwks.json", jwks(jwk("kid1", publicKey), jwk("kid2", newKey())));
+
+        try (var testee = new LocalJwkProvider(file.toString())) {
+            assertThat(testee.getKeyIds()).containsExactlyInAnyOrder("kid1", "kid2");
+            assertThat(testee.get("kid1").getPublicKey()).isEqualTo(publicKey);
+            assertThatThrownBy(() -> testee.get("unknown")).isInstanceOf(SigningKeyNotFoundException.class);
+            assertThatThrownBy(() -> testee.get(null)).isInstanceOf(SigningKeyNotFoundException.class);
+        }
+    }
+
+    @Test void shall_skip_keys_without_kid() throws Exception {
+        var file = write("jwks.json", jwks(jwk(null, newKey()), jwk("kid1", newKey())));
+
+        try (var testee = new LocalJwkProvider(file.toString())) {
+            assertThat(testee.getKeyIds()).containsExactly("kid1");
+        }
+    }
+
+    @Test void shall_fail_on_invalid_jwks() throws Exception {
+        var file = write("jwks.json", "{\"keys\": [");
+
+        assertThatThrownBy(() -> new LocalJwkProvider(file.toString())).isInstanceOf(UncheckedIOException.class);
+        assertThatThrownBy(() -> new LocalJwkProvider(dir.resolve("missing.json").toString())).isInstanceOf(UncheckedIOException.class);
+        assertThatThrownBy(() -> new LocalJwkProvider("classpath:missing.json")).isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test void shall_reload_keys_when_file_changes() throws Exception {
+        var file = write("jwks.json", jwks(jwk("kid1", newKey())));
+
+        try (var testee = new LocalJwkProvider(file.toString())) {
+            var reloaded = new CountDownLatch(1);
+            testee.addChangeListener(reloaded::countDown);
+
+            var tmp = write("jwks.tmp", jwks(jwk("kid2", newKey())));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            assertThat(reloaded.await(30, TimeUnit.SECONDS)).isTrue();
+            assertThat(testee.getKeyIds()).containsExactly("kid2");
+        }
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(dir.resolve(name), content);
+    }
+
+    static RSAPublicKey newKey() {
+        return (RSAPublicKey) Jwts.SIG.RS256.keyPair().build().getPublic();
+    }
+
+    static String jwks(String... keys) {
+        return format("{\"keys\": [%s]}", String.join(",", keys));
+    }
+
+    static String jwk(String kid, RSAPublicKey publicKey) {
+        var encoder = Base64.getUrlEncoder().withoutPadding();
+        return format("{%s\"kty\": \"RSA\", \"alg\": \"RS256\", \"use\": \"sig\", \"n\": \"%s\", \"e\": \"%s\"}",
+                kid == null ? "" : format("\"kid\": \"%s\", ", kid),
+                encoder.encodeToString(unsigned(publicKey.getModulus())),
+                encoder.encodeToString(unsigned(publicKey.getPublicExponent())));
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        var bytes = value.toByteArray();
+        return bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+}
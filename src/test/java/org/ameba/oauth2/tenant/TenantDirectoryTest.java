@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.tenant;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * A TenantDirectoryTest.
+ *
+ * @author Heiko Scherrer
+ */
+class TenantDirectoryTest {
+
+    @Test void shall_load_tenants_lazily() {
+        var repository = mock(TenantRepository.class);
+        var validator = new TenantValidator(repository);
+        verifyNoInteractions(repository);
+
+        when(repository.findByHash("4711")).thenReturn(Optional.of(tenant("4711", "acme")));
+        var directory = validator.getDirectory();
+        assertThat(directory.findByHash("4711")).contains(new TenantDirectory.Tenant("acme", "realm"));
+        assertThat(directory.findByHash("4711")).isPresent();
+        verify(repository).findByHash("4711");
+        verify(repository, never()).findAll();
+    }
+
+    @Test void shall_remember_unknown_tenants() throws Exception {
+        var repository = mock(TenantRepository.class);
+        when(repository.findByHash(anyString())).thenReturn(Optional.empty());
+        var testee = new TenantDirectory(repository, Duration.ofHours(1), 10, Duration.ofMillis(500));
+
+        assertThat(testee.findByHash("unknown")).isEmpty();
+        assertThat(testee.findByHash("unknown")).isEmpty();
+        verify(repository).findByHash("unknown");
+
+        Thread.sleep(600);
+        assertThat(testee.findByHash("unknown")).isEmpty();
+        verify(repository, times(2)).findByHash("unknown");
+    }
+
+    @Test void shall_forget_unknown_tenant_on_evict() {
+        var repository = mock(TenantRepository.class);
+        when(repository.findByHash("4711")).thenReturn(Optional.empty());
+        var testee = new TenantDirectory(repository);
+        assertThat(testee.findByHash("4711")).isEmpty();
+
+        when(repository.findByHash("4711")).thenReturn(Optional.of(tenant("4711", "acme")));
+        assertThat(testee.findByHash("4711")).isEmpty();
+        testee.evict("4711");
+
+        assertThat(testee.findByHash("4711")).isPresent();
+    }
+
+    @Test void shall_preload_tenants() {
+        var repository = mock(TenantRepository.class);
+        when(repository.findAll()).thenReturn(List.of(tenant("4711", "acme")));
+        var testee = new TenantDirectory(repository);
+
+        testee.preload();
+
+        assertThat(testee.findByHash("4711")).isPresent();
+        verify(repository, never()).findByHash(anyString());
+    }
+
+    static TenantEO tenant(String hash, String name) {
+        var tenant = new TenantEO(hash);
+        tenant.setName(name);
+        tenant.setRealm("realm");
+        return tenant;
+    }
+}
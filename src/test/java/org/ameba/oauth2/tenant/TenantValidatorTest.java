@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.oauth2.tenant;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import org.ameba.oauth2.InvalidTokenException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.crypto.SecretKey;
+import java.util.Optional;
+
+import static org.ameba.Constants.HEADER_VALUE_X_TENANT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A TenantValidatorTest.
+ *
+ * @author Heiko Scherrer
+ */
+class TenantValidatorTest {
+
+    private static final String ISSUER = "http://localhost/realms/realm";
+    private final SecretKey key = Jwts.SIG.HS512.key().build();
+    private TenantValidator testee;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        var repository = mock(TenantRepository.class);
+        when(repository.findByHash(anyString())).thenReturn(Optional.empty());
+        when(repository.findByHash("4711")).thenReturn(Optional.of(TenantDirectoryTest.tenant("4711", "acme")));
+        testee = new TenantValidator(repository);
+        request = new MockHttpServletRequest();
+        request.addHeader(HEADER_VALUE_X_TENANT, "4711");
+    }
+
+    @Test void shall_accept_token_issued_for_tenant() {
+        testee.validate(parse(Jwts.builder().issuer(ISSUER).audience().add("other").add("acme").and()), request);
+
+        assertThat(request.getAttribute(HEADER_VALUE_X_TENANT)).isEqualTo("acme");
+    }
+
+    @Test void shall_accept_single_audience() {
+        testee.validate(parse(Jwts.builder().issuer(ISSUER).audience().single("acme")), request);
+
+        assertThat(request.getAttribute(HEADER_VALUE_X_TENANT)).isEqualTo("acme");
+    }
+
+    @Test void shall_reject_token_issued_for_other_audience() {
+        var jws = parse(Jwts.builder().issuer(ISSUER).audience().add("other").add("acme2").and());
+
+        assertThatThrownBy(() -> testee.validate(jws, request))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessageContaining("audience");
+        assertThat(request.getAttribute(HEADER_VALUE_X_TENANT)).isNull();
+    }
+
+    @Test void shall_reject_token_without_audience() {
+        var jws = parse(Jwts.builder().issuer(ISSUER));
+
+        assertThatThrownBy(() -> testee.validate(jws, request)).isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test void shall_reject_unknown_tenant_and_realm() {
+        var jws = parse(Jwts.builder().issuer(ISSUER).audience().add("acme").and());
+        var unknown = new MockHttpServletRequest();
+        unknown.addHeader(HEADER_VALUE_X_TENANT, "0815");
+
+        assertThatThrownBy(() -> testee.validate(jws, unknown)).isInstanceOf(InvalidTokenException.class);
+        var otherRealm = parse(Jwts.builder().issuer("http://localhost/realms/other").audience().add("acme").and());
+        assertThatThrownBy(() -> testee.validate(otherRealm, request)).isInstanceOf(InvalidTokenException.class);
+    }
+
+    private Jws<Claims> parse(JwtBuilder builder) {
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(builder.signWith(key).compact());
+    }
+}
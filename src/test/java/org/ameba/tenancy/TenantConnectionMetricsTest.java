@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.tenancy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A TenantConnectionMetricsTest.
+ *
+ * @author Heiko Scherrer
+ */
+class TenantConnectionMetricsTest {
+
+    @Test void shall_bound_tenant_tags_across_windows() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        var metrics = new TenantConnectionMetrics(() -> registry, new TenantTags(2, Duration.ofMillis(100)));
+
+        // Another pair of tenants is the busiest in each window
+        for (int window = 0; window < 5; window++) {
+            for (int i = 0; i < 10; i++) {
+                metrics.connectionAcquired("tenant" + (2 * window), 1_000);
+                metrics.schemaSwitched("tenant" + (2 * window + 1));
+            }
+            assertThat(registry.find("ameba.tenant.connection.acquire").timers()).hasSizeLessThanOrEqualTo(2 + 2);
+            assertThat(registry.find("ameba.tenant.schema.switches").counters()).hasSizeLessThanOrEqualTo(2 + 2);
+            Thread.sleep(120);
+        }
+        metrics.connectionAcquired("tenant8", 1_000);
+
+        assertThat(registry.find("ameba.tenant.connection.acquire").tag("tenant", "tenant0").timers()).isEmpty();
+        assertThat(registry.get("ameba.tenant.connection.acquire").tag("tenant", "tenant8").timer().count()).isEqualTo(1);
+    }
+}
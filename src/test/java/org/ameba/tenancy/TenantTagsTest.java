@@ -0,0 +1,78 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ameba.tenancy;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A TenantTagsTest.
+ *
+ * @author Heiko Scherrer
+ */
+class TenantTagsTest {
+
+    @Test void shall_bound_the_number_of_tenants() {
+        var tags = new TenantTags(2, Duration.ofHours(1));
+        assertThat(tags.tag("a")).isEqualTo("a");
+        assertThat(tags.tag("b")).isEqualTo("b");
+        assertThat(tags.tag("c")).isEqualTo(TenantTags.OTHER);
+        assertThat(tags.tag(null)).isEqualTo(TenantTags.NONE);
+        assertThat(tags.getTopTenants()).containsOnly("a", "b");
+    }
+
+    @Test void shall_rank_the_busiest_tenants() throws Exception {
+        var tags = new TenantTags(2, Duration.ofMillis(200));
+        var rankings = new AtomicInteger();
+        tags.addRankListener(rankings::incrementAndGet);
+        tags.tag("a");
+        tags.tag("b");
+        for (int i = 0; i < 100; i++) {
+            tags.tag("c");
+            tags.tag("d");
+        }
+        assertThat(tags.getTopTenants()).containsOnly("a", "b");
+        Thread.sleep(250);
+        tags.tag("c");
+        assertThat(tags.getTopTenants()).containsOnly("c", "d");
+        assertThat(tags.tag("a")).isEqualTo(TenantTags.OTHER);
+
+        // a and b have lost their tag values, so their meters are stale and removed by the listener
+        assertThat(rankings.get()).isEqualTo(1);
+        assertThat(tags.isTagValue("a")).isFalse();
+        assertThat(tags.isTagValue("b")).isFalse();
+        assertThat(tags.isTagValue("c")).isTrue();
+        assertThat(tags.isTagValue(TenantTags.OTHER)).isTrue();
+        assertThat(tags.isTagValue(TenantTags.NONE)).isTrue();
+    }
+
+    @Test void shall_not_notify_if_no_tenant_dropped_out() throws Exception {
+        var tags = new TenantTags(2, Duration.ofMillis(100));
+        var rankings = new AtomicInteger();
+        tags.addRankListener(rankings::incrementAndGet);
+        tags.tag("a");
+        tags.tag("b");
+        Thread.sleep(150);
+        tags.tag("a");
+        tags.tag("b");
+        assertThat(tags.getTopTenants()).containsOnly("a", "b");
+        assertThat(rankings.get()).isZero();
+    }
+}